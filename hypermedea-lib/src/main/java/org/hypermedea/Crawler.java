@@ -0,0 +1,437 @@
+package org.hypermedea;
+
+import jason.asSyntax.Literal;
+import org.apache.jena.graph.Triple;
+import org.hypermedea.ct.rdf.RDFHandler;
+import org.hypermedea.op.Operation;
+import org.hypermedea.op.ProtocolBindings;
+import org.hypermedea.op.Response;
+import org.hypermedea.tools.Identifiers;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ *   Linked Data crawler, fetching resources in parallel (with GET operations) from seed URIs and following the
+ *   links found in their RDF representations, i.e. the URI objects of triples whose predicate is one of the
+ *   crawler's link predicates (or of any triple if no link predicate is given). The crawler keeps a frontier of
+ *   resources to fetch and a set of visited resources, identified by their normalized URI
+ *   (see {@link Identifiers#normalizeURI(String)}). Resources are fetched with the URI given as seed or found
+ *   in links, not with their normalized URI.
+ * </p>
+ * <p>
+ *   Fetched representations are passed to a {@link Listener} by batches. The crawl ends when the frontier is
+ *   empty and no request is in flight (or when the crawler is stopped). Responses are processed (and the listener
+ *   is called) on the crawler's own threads, as many as the maximum number of requests in flight.
+ * </p>
+ * <p>
+ *   Limits of the crawl are given by the following system properties:
+ * </p>
+ * <ul>
+ *   <li><code>org.hypermedea.crawler.maxDepth</code>: default maximum number of links between a seed and a crawled
+ *   resource (default: 5)</li>
+ *   <li><code>org.hypermedea.crawler.maxHosts</code>: maximum number of distinct hosts crawled (default: unlimited)</li>
+ *   <li><code>org.hypermedea.crawler.maxResources</code>: maximum number of resources crawled (default: 10,000)</li>
+ *   <li><code>org.hypermedea.crawler.concurrency</code>: maximum number of requests in flight (default: 16)</li>
+ *   <li><code>org.hypermedea.crawler.maxInFlightPerHost</code>: maximum number of requests in flight to a single
+ *   host (default: 2)</li>
+ *   <li><code>org.hypermedea.crawler.batchSize</code>: number of representations per batch (default: 50)</li>
+ * </ul>
+ * <p>
+ *   For politeness, the frontier is kept per host: resources of a host are only fetched while fewer than
+ *   <code>maxInFlightPerHost</code> requests to that host are in flight (URIs without host, e.g. files, are not
+ *   limited). Further limits of the operation scheduler also apply, e.g. a request rate per host
+ *   (see {@link org.hypermedea.op.OperationScheduler}).
+ * </p>
+ */
+public class Crawler {
+
+    /**
+     * Receiver of crawl results. Calls may come from any thread.
+     */
+    public interface Listener {
+
+        /**
+         * @param representations representations fetched since the last batch, indexed by target URI
+         */
+        void onBatch(Map<String, Collection<Literal>> representations);
+
+        /**
+         * Called once, after the last batch.
+         */
+        void onEnd();
+
+    }
+
+    private static class Link {
+
+        private final String uri;
+
+        private final String host;
+
+        private final int depth;
+
+        private Link(String uri, String host, int depth) {
+            this.uri = uri;
+            this.host = host;
+            this.depth = depth;
+        }
+
+    }
+
+    public static final String MAX_DEPTH_PROPERTY = "org.hypermedea.crawler.maxDepth";
+
+    public static final String MAX_HOSTS_PROPERTY = "org.hypermedea.crawler.maxHosts";
+
+    public static final String MAX_RESOURCES_PROPERTY = "org.hypermedea.crawler.maxResources";
+
+    public static final String CONCURRENCY_PROPERTY = "org.hypermedea.crawler.concurrency";
+
+    public static final String MAX_IN_FLIGHT_PER_HOST_PROPERTY = "org.hypermedea.crawler.maxInFlightPerHost";
+
+    public static final String BATCH_SIZE_PROPERTY = "org.hypermedea.crawler.batchSize";
+
+    public static final int DEFAULT_MAX_DEPTH = 5;
+
+    public static final int UNLIMITED = -1;
+
+    public static final int DEFAULT_MAX_RESOURCES = 10000;
+
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    public static final int DEFAULT_MAX_IN_FLIGHT_PER_HOST = 2;
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * Maximum time (in milliseconds) a fetched representation waits in an incomplete batch.
+     */
+    private static final long MAX_BATCH_DELAY = 1000;
+
+    private final static Logger LOGGER = Logger.getLogger(Crawler.class.getCanonicalName());
+
+    private final Set<String> linkPredicates;
+
+    private final int maxDepth;
+
+    private final int maxHosts = Integer.getInteger(MAX_HOSTS_PROPERTY, UNLIMITED);
+
+    private final int maxResources = Integer.getInteger(MAX_RESOURCES_PROPERTY, DEFAULT_MAX_RESOURCES);
+
+    private final int concurrency = Integer.getInteger(CONCURRENCY_PROPERTY, DEFAULT_CONCURRENCY);
+
+    private final int maxInFlightPerHost = Integer.getInteger(MAX_IN_FLIGHT_PER_HOST_PROPERTY, DEFAULT_MAX_IN_FLIGHT_PER_HOST);
+
+    private final int batchSize = Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE);
+
+    private final Listener listener;
+
+    /**
+     * Function creating the GET operation of a resource (bound to the resource's protocol by default).
+     */
+    private final Function<String, Operation> binder;
+
+    /**
+     * Threads sending requests and processing responses (idle threads are terminated).
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Resources to fetch, by host (the empty string for URIs without host).
+     */
+    private final Map<String, Queue<Link>> frontier = new LinkedHashMap<>();
+
+    private int frontierSize = 0;
+
+    /**
+     * Number of requests in flight, by host.
+     */
+    private final Map<String, Integer> hostInFlight = new HashMap<>();
+
+    private final Set<String> visited = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> hosts = ConcurrentHashMap.newKeySet();
+
+    private Map<String, Collection<Literal>> batch = new HashMap<>();
+
+    private long lastBatchTime = System.currentTimeMillis();
+
+    private int inFlight = 0;
+
+    private volatile int fetched = 0;
+
+    private volatile int failed = 0;
+
+    private volatile long startTime;
+
+    private volatile boolean stopped = false;
+
+    private boolean ended = false;
+
+    /**
+     * @param linkPredicates URIs of the predicates of links to follow (all links if empty)
+     * @param maxDepth maximum number of links between a seed and a crawled resource
+     * @param listener receiver of crawl results
+     */
+    public Crawler(Collection<String> linkPredicates, int maxDepth, Listener listener) {
+        this(linkPredicates, maxDepth, listener, Crawler::bindGet);
+    }
+
+    /**
+     * @param linkPredicates URIs of the predicates of links to follow (all links if empty)
+     * @param maxDepth maximum number of links between a seed and a crawled resource
+     * @param listener receiver of crawl results
+     * @param binder function creating the GET operation of a resource
+     */
+    Crawler(Collection<String> linkPredicates, int maxDepth, Listener listener, Function<String, Operation> binder) {
+        this.linkPredicates = new HashSet<>(linkPredicates);
+        this.maxDepth = maxDepth;
+        this.listener = listener;
+        this.binder = binder;
+
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "hypermedea-crawler");
+            t.setDaemon(true);
+            return t;
+        });
+
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Start crawling from the given seeds. The method returns immediately: requests are sent from the crawler's
+     * threads (the listener may thus be called before the method returns).
+     *
+     * @param seeds URIs of the first resources to fetch
+     */
+    public void start(Collection<String> seeds) {
+        startTime = System.nanoTime();
+
+        for (String seed : seeds) enqueue(seed, 0);
+
+        executor.execute(this::pump);
+    }
+
+    /**
+     * Stop crawling: no new request is sent (the crawl ends when all requests in flight are complete).
+     * The method returns immediately.
+     */
+    public void stop() {
+        synchronized (this) {
+            stopped = true;
+            frontier.clear();
+            frontierSize = 0;
+        }
+
+        executor.execute(this::pump);
+    }
+
+    /**
+     * @return {@code true} if the crawl has ended
+     */
+    public synchronized boolean hasEnded() {
+        return ended;
+    }
+
+    /**
+     * @return the number of resources successfully fetched
+     */
+    public int getFetchedCount() {
+        return fetched;
+    }
+
+    /**
+     * @return the number of resources that could not be fetched
+     */
+    public int getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * @return the number of resources waiting to be fetched
+     */
+    public synchronized int getFrontierSize() {
+        return frontierSize;
+    }
+
+    /**
+     * @return the average number of resources fetched per second since the crawl started
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return seconds > 0 ? fetched / seconds : 0;
+    }
+
+    private synchronized void enqueue(String uri, int depth) {
+        if (stopped || depth > maxDepth) return;
+
+        String normalized = Identifiers.normalizeURI(uri);
+        if (visited.contains(normalized) || (maxResources >= 0 && visited.size() >= maxResources)) return;
+
+        String host = getHost(normalized);
+
+        if (host != null && !hosts.contains(host)) {
+            if (maxHosts >= 0 && hosts.size() >= maxHosts) return;
+            hosts.add(host);
+        }
+
+        visited.add(normalized);
+
+        // the normalized URI only identifies the resource: some servers don't consider normalized URIs equivalent
+        Link l = new Link(uri, host == null ? "" : host, depth);
+
+        frontier.computeIfAbsent(l.host, h -> new ArrayDeque<>()).add(l);
+        frontierSize++;
+    }
+
+    /**
+     * Send requests for resources of the frontier, as long as the maximum number of requests in flight
+     * (overall and per host) isn't reached, or end the crawl if there is nothing left to fetch.
+     */
+    private void pump() {
+        List<Link> next = new ArrayList<>();
+        boolean end = false;
+
+        synchronized (this) {
+            Iterator<Map.Entry<String, Queue<Link>>> it = frontier.entrySet().iterator();
+
+            while (!stopped && inFlight < concurrency && it.hasNext()) {
+                Map.Entry<String, Queue<Link>> kv = it.next();
+                Queue<Link> links = kv.getValue();
+
+                while (inFlight < concurrency && !links.isEmpty() && isAvailable(kv.getKey())) {
+                    next.add(links.poll());
+                    frontierSize--;
+
+                    inFlight++;
+                    hostInFlight.merge(kv.getKey(), 1, Integer::sum);
+                }
+
+                if (links.isEmpty()) it.remove();
+            }
+
+            if (inFlight == 0 && frontierSize == 0 && !ended) {
+                ended = true;
+                end = true;
+            }
+        }
+
+        // requests are sent outside of the lock (some bindings send them on the caller's thread)
+        for (Link l : next) fetch(l);
+
+        if (end) {
+            flush();
+            listener.onEnd();
+        }
+    }
+
+    /**
+     * @return {@code true} if a request can be sent to the host (always for URIs without host)
+     */
+    private boolean isAvailable(String host) {
+        return host.isEmpty() || hostInFlight.getOrDefault(host, 0) < maxInFlightPerHost;
+    }
+
+    private void fetch(Link l) {
+        Operation op;
+
+        try {
+            op = binder.apply(l.uri);
+        } catch (RuntimeException e) {
+            LOGGER.warning("No binding found for crawled resource: " + l.uri);
+            complete(l, false);
+            return;
+        }
+
+        op.sendAsync().whenCompleteAsync((res, e) -> {
+            boolean ok = false;
+
+            try {
+                if (e == null && res.getStatus().equals(Response.ResponseStatus.OK)) {
+                    Collection<Literal> payload = res.getPayload();
+
+                    for (Literal t : payload) {
+                        if (!t.getFunctor().equals(RDFHandler.RDF_FUNCTOR)) continue;
+
+                        Triple triple = RDFHandler.getTriple(t);
+                        if (triple != null && isLink(triple)) enqueue(triple.getObject().getURI(), l.depth + 1);
+                    }
+
+                    // same as the link's URI, unless it was a file path (resolved by the binding)
+                    add(op.getTargetURI(), payload);
+                    ok = true;
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.warning("Crawled resource cannot be processed: " + l.uri + " (" + ex.getMessage() + ")");
+            }
+
+            complete(l, ok);
+        }, executor);
+    }
+
+    private static Operation bindGet(String uri) {
+        Map<String, Object> f = new HashMap<>();
+        f.put(Operation.METHOD_NAME_FIELD, Operation.GET);
+
+        return ProtocolBindings.bind(uri, f);
+    }
+
+    private static String getHost(String uri) {
+        try {
+            return new URI(uri).getHost();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private boolean isLink(Triple triple) {
+        if (!triple.getObject().isURI()) return false;
+        return linkPredicates.isEmpty() || linkPredicates.contains(triple.getPredicate().getURI());
+    }
+
+    private void complete(Link l, boolean ok) {
+        synchronized (this) {
+            inFlight--;
+            hostInFlight.computeIfPresent(l.host, (h, n) -> n > 1 ? n - 1 : null);
+
+            if (ok) fetched++;
+            else failed++;
+        }
+
+        pump();
+    }
+
+    private void add(String uri, Collection<Literal> representation) {
+        boolean full;
+
+        synchronized (this) {
+            batch.put(uri, representation);
+            full = batch.size() >= batchSize || System.currentTimeMillis() - lastBatchTime > MAX_BATCH_DELAY;
+        }
+
+        if (full) flush();
+    }
+
+    private void flush() {
+        Map<String, Collection<Literal>> b;
+
+        synchronized (this) {
+            if (batch.isEmpty()) return;
+
+            b = batch;
+            batch = new HashMap<>();
+            lastBatchTime = System.currentTimeMillis();
+        }
+
+        listener.onBatch(b);
+    }
+
+}
@@ -1,21 +1,36 @@
 package org.hypermedea;
 
 import cartago.Artifact;
+import cartago.IBlockingCmd;
 import cartago.OPERATION;
 import cartago.ObsProperty;
+import cartago.OpFeedbackParam;
 import jason.asSyntax.ASSyntax;
 import jason.asSyntax.Literal;
 import jason.asSyntax.Structure;
 import jason.asSyntax.Term;
 import jason.asSyntax.parser.ParseException;
+import org.apache.jena.query.QueryException;
+import org.hypermedea.op.NoResponseException;
 import org.hypermedea.op.Operation;
 import org.hypermedea.op.ProtocolBindings;
 import org.hypermedea.op.Response;
 import org.hypermedea.op.ResponseCallback;
+import org.hypermedea.ct.rdf.RDFHandler;
+import org.hypermedea.store.PersistentStore;
+import org.hypermedea.store.RepresentationCache;
+import org.hypermedea.store.RepresentationStore;
 import org.hypermedea.tools.Identifiers;
+import org.hypermedea.tools.TermInterner;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * <p>
@@ -49,7 +64,12 @@ import java.util.*;
  *   {@link #put(String, Object[], Object[]) put},
  *   {@link #post(String, Object[], Object[]) post},
  *   {@link #patch(String, Object[], Object[]) patch} and
- *   {@link #delete(String, Object[]) delete}.
+ *   {@link #delete(String, Object[]) delete}, as well as batch operations on several resources
+ *   ({@link #getAll(Object[], Object[], OpFeedbackParam) getAll},
+ *   {@link #putAll(Object[], Object[], Object[], OpFeedbackParam) putAll} and
+ *   {@link #deleteAll(Object[], Object[], OpFeedbackParam) deleteAll}).
+ *   RDF representations can also be queried with {@link #match(Object, Object, Object, Object, OpFeedbackParam) match}
+ *   and {@link #sparql(String, OpFeedbackParam) sparql}, if a store is configured (see {@link RepresentationStore}).
  * </p>
  * <p>
  *   All operations have in common that they
@@ -60,6 +80,13 @@ import java.util.*;
  *   also have an alternative signature without form, which is equivalent to executing
  *   the operation with an empty form.
  * </p>
+ * <p>
+ *   Representations may be kept within a memory budget (see {@link RepresentationCache}). In that case,
+ *   the artifact also exposes the size of the cache (<code>cache_size(Literals, Bytes)</code>), the
+ *   number of evicted resources (<code>cache_evictions(N)</code>) and the size of each representation
+ *   (<code>cache_entry(URI, Literals, Bytes)</code>). Representations may also be persisted on disk, to be
+ *   restored when the artifact is initialized (see {@link PersistentStore}).
+ * </p>
 */
 public class HypermedeaArtifact extends Artifact {
 
@@ -78,7 +105,7 @@ public class HypermedeaArtifact extends Artifact {
 
         @Override
         public void onResponse(Response res) {
-            log(res.toString());
+            logTrace(res);
 
             if (!res.getStatus().equals(Response.ResponseStatus.OK)) {
                 // TODO do something?
@@ -105,20 +132,148 @@ public class HypermedeaArtifact extends Artifact {
 
     }
 
+    /**
+     * Command sending the requests of synchronous operations (in parallel) and waiting for all responses,
+     * executed while the artifact is released (see {@link Artifact#await(IBlockingCmd)}).
+     */
+    private static class ResponseCommand implements IBlockingCmd {
+
+        private final List<Operation> operations;
+
+        private final Response[] responses;
+
+        private final Exception[] errors;
+
+        private ResponseCommand(List<Operation> ops) {
+            operations = ops;
+            responses = new Response[ops.size()];
+            errors = new Exception[ops.size()];
+        }
+
+        @Override
+        public void exec() {
+            List<CompletableFuture<Response>> futures = new ArrayList<>();
+
+            for (Operation op : operations) {
+                // payloads are memoized: representations are parsed outside the artifact as well
+                futures.add(op.sendAsync().thenApply(res -> {
+                    if (res.getStatus().equals(Response.ResponseStatus.OK)) res.getPayload();
+                    return res;
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    responses[i] = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+
+                    if (cause instanceof IOException || cause instanceof RuntimeException) errors[i] = (Exception) cause;
+                    else errors[i] = new NoResponseException(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    futures.forEach(f -> f.cancel(true));
+                    errors[i] = new NoResponseException(e);
+                }
+            }
+        }
+
+    }
+
     public static final String SOURCE_FUNCTOR = "source";
 
-    private final Map<String, Collection<ObsProperty>> representations = new HashMap<>();
+    public static final String CACHE_SIZE_FUNCTOR = "cache_size";
+
+    public static final String CACHE_EVICTIONS_FUNCTOR = "cache_evictions";
+
+    public static final String CACHE_ENTRY_FUNCTOR = "cache_entry";
+
+    private static final String NO_STORE_MESSAGE = "No store configured (see system property " + RepresentationStore.STORE_PROPERTY + ")";
+
+    /**
+     * Number of restored representations applied to the artifact's observable properties at once.
+     */
+    private static final int RESTORE_BATCH_SIZE = 100;
+
+    /**
+     * Observable properties of each resource representation, indexed by the literal they were defined from.
+     */
+    private final Map<String, Map<Literal, ObsProperty>> representations = new HashMap<>();
 
     private final Map<String, Operation> activeOperations = new HashMap<>();
 
+    /**
+     * Store of representations queried by {@link #match(Object, Object, Object, Object, OpFeedbackParam) match}
+     * and {@link #sparql(String, OpFeedbackParam) sparql} ({@code null} if no store is configured).
+     */
+    private final RepresentationStore store = createStore();
+
+    private final RepresentationCache cache = RepresentationCache.fromProperties();
+
+    /**
+     * Observable properties exposing the size of each representation (if the cache is bounded).
+     */
+    private final Map<String, ObsProperty> cacheEntries = new HashMap<>();
+
+    /**
+     * On-disk copy of representations (if persistence is enabled).
+     */
+    private PersistentStore persistentStore = null;
+
+    /**
+     * Thread restoring representations from the persistent store (if persistence is enabled).
+     */
+    private ExecutorService restoreExecutor = null;
+
+    /**
+     * Set while restored representations are applied (they need not be written back to the persistent store).
+     */
+    private boolean restoring = false;
+
     private final Object[] emptyForm = {};
 
+    private final static Logger LOGGER = Logger.getLogger(HypermedeaArtifact.class.getCanonicalName());
+
     public void init() {
-        // nothing to do
+        if (cache.isBounded()) {
+            defineObsProperty(CACHE_SIZE_FUNCTOR, 0, 0);
+            defineObsProperty(CACHE_EVICTIONS_FUNCTOR, 0);
+        }
+
+        try {
+            persistentStore = PersistentStore.fromProperties().orElse(null);
+        } catch (IOException e) {
+            LOGGER.warning("Persistent store cannot be opened, representations won't be persisted: " + e.getMessage());
+        }
+
+        // representations are restored after the artifact is initialized, not to delay agents' startup
+        if (persistentStore != null) {
+            restoreExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "hypermedea-restore");
+                t.setDaemon(true);
+                return t;
+            });
+
+            CompletableFuture.runAsync(this::restoreRepresentations, restoreExecutor).exceptionally(e -> {
+                LOGGER.warning("Representations cannot be restored: " + e);
+                return null;
+            });
+        }
     }
 
     @Override
     protected void dispose() {
+        if (restoreExecutor != null) restoreExecutor.shutdownNow();
+
+        if (persistentStore != null) {
+            try {
+                persistentStore.close();
+            } catch (IOException e) {
+                LOGGER.warning("Persistent store cannot be closed: " + e.getMessage());
+            }
+        }
+
         super.dispose();
     }
 
@@ -185,7 +340,8 @@ public class HypermedeaArtifact extends Artifact {
     /**
      * <p>
      *   Subscribes to any change in the representation of {@code resourceURI}, to be sent asynchronously
-     *   by the server. Not all protocols may support this operation type. Plain HTTP, for instance, doesn't.
+     *   by the server. Not all protocols may support this operation type. Over HTTP, the server must support
+     *   Server-Sent Events (<code>text/event-stream</code>).
      * </p>
      * <p>
      *   In contrast to a {@link #get(String, Object[]) get} operation, the call may return before having
@@ -237,6 +393,7 @@ public class HypermedeaArtifact extends Artifact {
         // registration must occur before the operation starts
         op.registerResponseCallback(new Subscription(resourceURI));
         activeOperations.put(resourceURI, op);
+        cache.pin(resourceURI);
 
         initiateOperation(op, Optional.empty());
     }
@@ -261,6 +418,7 @@ public class HypermedeaArtifact extends Artifact {
     @OPERATION
     public void forget(String resourceURI, Object[] formFields) {
         updateRepresentation(resourceURI, new HashSet<>());
+        cache.unpin(resourceURI);
 
         if (activeOperations.containsKey(resourceURI)) {
             Operation op = activeOperations.remove(resourceURI);
@@ -453,11 +611,199 @@ public class HypermedeaArtifact extends Artifact {
         initiateOperation(op, Optional.empty());
     }
 
+    /**
+     * Executes {@link #getAll(Object[], Object[], OpFeedbackParam)} with an empty form.
+     */
+    @OPERATION
+    public void getAll(Object[] resourceURIs, OpFeedbackParam<Object[]> statuses) {
+        getAll(resourceURIs, emptyForm, statuses);
+    }
+
+    /**
+     * <p>
+     *   Asks servers for a representation of each resource in {@code resourceURIs}, as for
+     *   {@link #get(String, Object[]) get}. All requests are sent in parallel and all representations
+     *   are exposed at once, when all responses are received (or the operations timed out).
+     *   The call thus takes roughly as long as the slowest request. It succeeds even if some of
+     *   the requests failed: the status of each request is returned instead, as follows:
+     * </p>
+     * <pre><code>+!retrieve_all(URIs) &lt;-
+    getAll(URIs, Statuses) ;
+    .print(Statuses) ; // e.g. ["ok", "ok", "client_error", "no_response"]
+  .</code></pre>
+     * <p>
+     *   A status is either the response status (<code>ok</code>, <code>client_error</code>,
+     *   <code>server_error</code> or <code>unknown_error</code>) or <code>no_response</code>
+     *   if an error occurred before any response was received.
+     * </p>
+     *
+     * @param resourceURIs a list of resource URIs
+     * @param formFields a collection of form fields (key/value pairs), shared by all operations
+     * @param statuses the status of each operation, in the order of {@code resourceURIs}
+     */
+    @OPERATION
+    public void getAll(Object[] resourceURIs, Object[] formFields, OpFeedbackParam<Object[]> statuses) {
+        List<Operation> ops = new ArrayList<>();
+
+        for (Object uri : resourceURIs) {
+            Map<String, Object> f = parseFormFields(formFields);
+            f.put(Operation.METHOD_NAME_FIELD, Operation.GET);
+
+            ops.add(ProtocolBindings.bind(uri.toString(), f));
+        }
+
+        statuses.set(initiateOperations(ops));
+    }
+
+    /**
+     * Executes {@link #putAll(Object[], Object[], Object[], OpFeedbackParam)} with an empty form.
+     */
+    @OPERATION
+    public void putAll(Object[] resourceURIs, Object[] representations, OpFeedbackParam<Object[]> statuses) {
+        putAll(resourceURIs, representations, emptyForm, statuses);
+    }
+
+    /**
+     * Asks servers to replace the representation of each resource in {@code resourceURIs} with the
+     * corresponding representation in {@code representations}, as for {@link #put(String, Object[], Object[]) put}.
+     * As for {@link #getAll(Object[], Object[], OpFeedbackParam) getAll}, requests are sent in parallel and the
+     * status of each request is returned.
+     *
+     * @param resourceURIs a list of resource URIs
+     * @param representations a list of resource representations (lists of Jason literals), one per resource
+     * @param formFields a collection of form fields (key/value pairs), shared by all operations
+     * @param statuses the status of each operation, in the order of {@code resourceURIs}
+     */
+    @OPERATION
+    public void putAll(Object[] resourceURIs, Object[] representations, Object[] formFields, OpFeedbackParam<Object[]> statuses) {
+        if (resourceURIs.length != representations.length) {
+            failed("The number of representations doesn't match the number of resources");
+        }
+
+        List<Operation> ops = new ArrayList<>();
+
+        for (int i = 0; i < resourceURIs.length; i++) {
+            Map<String, Object> f = parseFormFields(formFields);
+            f.put(Operation.METHOD_NAME_FIELD, Operation.PUT);
+
+            Operation op = ProtocolBindings.bind(resourceURIs[i].toString(), f);
+
+            Object r = representations[i];
+            setPayload(op, r instanceof Object[] ? (Object[]) r : new Object[] { r });
+
+            ops.add(op);
+        }
+
+        statuses.set(initiateOperations(ops));
+    }
+
+    /**
+     * Executes {@link #deleteAll(Object[], Object[], OpFeedbackParam)} with an empty form.
+     */
+    @OPERATION
+    public void deleteAll(Object[] resourceURIs, OpFeedbackParam<Object[]> statuses) {
+        deleteAll(resourceURIs, emptyForm, statuses);
+    }
+
+    /**
+     * Asks servers to delete all known representations of each resource in {@code resourceURIs},
+     * as for {@link #delete(String, Object[]) delete}. As for {@link #getAll(Object[], Object[], OpFeedbackParam) getAll},
+     * requests are sent in parallel and the status of each request is returned.
+     *
+     * @param resourceURIs a list of resource URIs
+     * @param formFields a collection of form fields (key/value pairs), shared by all operations
+     * @param statuses the status of each operation, in the order of {@code resourceURIs}
+     */
+    @OPERATION
+    public void deleteAll(Object[] resourceURIs, Object[] formFields, OpFeedbackParam<Object[]> statuses) {
+        List<Operation> ops = new ArrayList<>();
+
+        for (Object uri : resourceURIs) {
+            Map<String, Object> f = parseFormFields(formFields);
+            f.put(Operation.METHOD_NAME_FIELD, Operation.DELETE);
+
+            ops.add(ProtocolBindings.bind(uri.toString(), f));
+        }
+
+        statuses.set(initiateOperations(ops));
+    }
+
+    /**
+     * Finds all RDF triples matching the given pattern in the representations currently managed by the artifact,
+     * without adding them to the agent's belief base. Triples are looked up in the artifact's store (indexed by
+     * subject, predicate, object and source, see {@link RepresentationStore}). An unbound variable matches any term.
+     * The operation fails if no store is configured.
+     * <p>
+     * Example: <code>match(S, "http://www.w3.org/1999/02/22-rdf-syntax-ns#type", "http://example.org/Person", Src, Matches)</code>
+     *
+     * @param subject subject of matching triples
+     * @param predicate predicate of matching triples
+     * @param object object of matching triples
+     * @param source URI of the resource whose representation includes matching triples
+     * @param matches matching triples, each annotated with its source (<code>rdf(S, P, O)[source(URI)]</code>)
+     */
+    @OPERATION
+    public void match(Object subject, Object predicate, Object object, Object source, OpFeedbackParam<Object[]> matches) {
+        if (store == null) {
+            failed(NO_STORE_MESSAGE);
+            return;
+        }
+
+        String src = source instanceof OpFeedbackParam ? null : source.toString();
+        if (src != null) cache.touch(src);
+
+        Collection<Literal> triples = store.match(getPatternTerm(subject), getPatternTerm(predicate), getPatternTerm(object), src);
+        matches.set(triples.toArray());
+    }
+
+    /**
+     * Evaluates a SPARQL query over all RDF representations currently managed by the artifact, without
+     * adding them to the agent's belief base. The default graph of the query is the union of all
+     * representations; the representation of each resource is also available as a named graph
+     * (whose name is the resource URI).
+     * <p>
+     * The result of an <code>ASK</code> query is a boolean. The result of a <code>SELECT</code> query is
+     * a list of solutions, each solution being the list of values of the selected variables (in order),
+     * with the same Jason terms as in <code>rdf/3</code> properties. Unbound values are anonymous variables.
+     * The operation fails if no store is configured or if the store doesn't support SPARQL queries.
+     *
+     * @param query a SPARQL <code>SELECT</code> or <code>ASK</code> query
+     * @param result the result of the query
+     */
+    @OPERATION
+    public void sparql(String query, OpFeedbackParam<Object> result) {
+        if (store == null) {
+            failed(NO_STORE_MESSAGE);
+            return;
+        }
+
+        try {
+            Object r = store.query(query);
+
+            if (r instanceof List) {
+                List<Object[]> solutions = new ArrayList<>();
+                for (Object s : (List<?>) r) solutions.add(((List<?>) s).toArray());
+
+                result.set(solutions.toArray());
+            } else {
+                result.set(r);
+            }
+        } catch (QueryException e) {
+            failed("Invalid SPARQL query: " + e.getMessage());
+        } catch (UnsupportedOperationException e) {
+            failed(e.getMessage());
+        }
+    }
+
     /**
      * Sends the request that will start an operation and waits for an initial response from the server.
      * If the operation is a WATCH operation, the operation remains active after this method returns
      * (until {@link #forget(String)} is called on the target resource). Otherwise, the operation must
      * have ended before the method returns.
+     * <p>
+     * While waiting for the response of a synchronous operation, the artifact is released: other agents
+     * can use it (and have their own requests in flight) in the meantime. The artifact is re-entered only
+     * to update resource representations.
      *
      * @param op an operation bound to a protocol binding
      * @param requestPayloadOpt an optional paylaod to add to the request
@@ -470,12 +816,19 @@ public class HypermedeaArtifact extends Artifact {
                 setPayload(op, requestPayload);
             }
 
-            op.sendRequest();
-            log(op.toString());
+            if (op.isAsync()) {
+                op.sendRequest();
+                logTrace(op);
+            } else {
+                ResponseCommand cmd = new ResponseCommand(Collections.singletonList(op));
+                await(cmd);
+
+                logTrace(op);
+                if (cmd.errors[0] instanceof IOException) throw (IOException) cmd.errors[0];
+                else if (cmd.errors[0] != null) throw (RuntimeException) cmd.errors[0];
 
-            if (!op.isAsync()) {
-                Response res = op.getResponse();
-                log(res.toString());
+                Response res = cmd.responses[0];
+                logTrace(res);
 
                 if (!res.getStatus().equals(Response.ResponseStatus.OK)) {
                     // TODO add request/response in error tuples
@@ -493,6 +846,167 @@ public class HypermedeaArtifact extends Artifact {
         return op;
     }
 
+    /**
+     * Sends the requests of several synchronous operations in parallel, waits for all responses (while the
+     * artifact is released) and updates all representations in a single transaction.
+     *
+     * @param ops operations bound to a protocol binding
+     * @return the status of each operation
+     */
+    private Object[] initiateOperations(List<Operation> ops) {
+        ResponseCommand cmd = new ResponseCommand(ops);
+        await(cmd);
+
+        Object[] statuses = new Object[ops.size()];
+        Map<String, Collection<Literal>> newRepresentations = new LinkedHashMap<>();
+
+        for (int i = 0; i < ops.size(); i++) {
+            Operation op = ops.get(i);
+            logTrace(op);
+
+            if (cmd.errors[i] != null) {
+                log("I/O error occurred: " + cmd.errors[i].getMessage());
+                statuses[i] = "no_response";
+            } else {
+                Response res = cmd.responses[i];
+                logTrace(res);
+
+                if (res.getStatus().equals(Response.ResponseStatus.OK)) {
+                    newRepresentations.put(op.getTargetURI(), res.getPayload());
+                }
+
+                statuses[i] = res.getStatus().name().toLowerCase();
+            }
+        }
+
+        updateRepresentations(newRepresentations);
+        commit();
+
+        return statuses;
+    }
+
+    /**
+     * Decode representations from the persistent store and apply them by batches (in external sessions), then
+     * fetch them again from servers (unless {@link PersistentStore#REVALIDATE_PROPERTY} is set to {@code false}).
+     * Resources for which agents obtained a representation in the meantime are not overwritten. If revalidation
+     * fails, the restored representation is kept. Only representations stored by this artifact are restored
+     * (artifacts may share a persistent store, see {@link #getStoreKey(String)}).
+     */
+    private void restoreRepresentations() {
+        boolean revalidate = !"false".equalsIgnoreCase(System.getProperty(PersistentStore.REVALIDATE_PROPERTY));
+        Map<String, Collection<Literal>> batch = new HashMap<>();
+
+        String prefix = getStoreKey("");
+        List<String> resourceURIs = new ArrayList<>();
+
+        for (String key : persistentStore.getSources()) {
+            if (key.startsWith(prefix)) resourceURIs.add(key.substring(prefix.length()));
+        }
+
+        for (String resourceURI : resourceURIs) {
+            try {
+                batch.put(resourceURI, persistentStore.load(getStoreKey(resourceURI)));
+            } catch (IOException e) {
+                LOGGER.warning("Stored representation cannot be restored: " + e.getMessage());
+            }
+
+            if (batch.size() == RESTORE_BATCH_SIZE) {
+                applyRestoredRepresentations(batch);
+                batch.clear();
+            }
+        }
+
+        applyRestoredRepresentations(batch);
+
+        if (revalidate) {
+            for (String resourceURI : resourceURIs) revalidateRepresentation(resourceURI);
+        }
+    }
+
+    private void applyRestoredRepresentations(Map<String, Collection<Literal>> batch) {
+        if (batch.isEmpty()) return;
+
+        beginExtSession();
+
+        batch.keySet().removeAll(representations.keySet());
+
+        restoring = true;
+        updateRepresentations(batch);
+        restoring = false;
+
+        endExtSession();
+    }
+
+    private void revalidateRepresentation(String resourceURI) {
+        Map<String, Object> f = new HashMap<>();
+        f.put(Operation.METHOD_NAME_FIELD, Operation.GET);
+
+        Operation op;
+
+        try {
+            op = ProtocolBindings.bind(resourceURI, f);
+        } catch (RuntimeException e) {
+            LOGGER.warning("Restored representation cannot be revalidated: " + resourceURI);
+            return;
+        }
+
+        op.sendAsync().whenComplete((res, e) -> {
+            if (e != null || !res.getStatus().equals(Response.ResponseStatus.OK)) {
+                LOGGER.info("Restored representation kept, server gave no representation for: " + resourceURI);
+                return;
+            }
+
+            Collection<Literal> payload = res.getPayload();
+
+            beginExtSession();
+
+            // the resource may have been forgotten in the meantime
+            if (representations.containsKey(resourceURI)) updateRepresentation(resourceURI, payload);
+
+            endExtSession();
+        });
+    }
+
+    /**
+     * Log an operation or a response (through the artifact's log) only if level {@code FINE} is enabled
+     * for the artifact's logger: their string representation includes part of their payload and is
+     * therefore costly to build.
+     *
+     * @param opOrResponse an operation or a response
+     */
+    private void logTrace(Object opOrResponse) {
+        if (LOGGER.isLoggable(Level.FINE)) log(opOrResponse.toString());
+    }
+
+    /**
+     * Return the Jason term corresponding to an argument of {@link #match(Object, Object, Object, Object, OpFeedbackParam) match}
+     * or {@code null} if the argument was an unbound variable.
+     */
+    private Term getPatternTerm(Object arg) {
+        if (arg instanceof OpFeedbackParam) return null;
+        else if (arg instanceof Term) return (Term) arg;
+        else if (arg instanceof Number) return ASSyntax.createNumber(((Number) arg).doubleValue());
+        else if (arg.toString().startsWith(RDFHandler.BNODE_PREFIX)) return ASSyntax.createAtom(arg.toString());
+        else return ASSyntax.createString(arg.toString());
+    }
+
+    /**
+     * Create the store of representations set with {@link RepresentationStore#STORE_PROPERTY}.
+     *
+     * @return a store or {@code null} if no store is configured (or if the configured class cannot be instantiated)
+     */
+    private static RepresentationStore createStore() {
+        String className = System.getProperty(RepresentationStore.STORE_PROPERTY, RepresentationStore.NO_STORE);
+        if (className.equals(RepresentationStore.NO_STORE)) return null;
+
+        try {
+            return Class.forName(className).asSubclass(RepresentationStore.class).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            LOGGER.warning("Cannot create store of class " + className + ", no store used: " + e);
+            return null;
+        }
+    }
+
     private void setPayload(Operation op, Object[] requestPayload) {
         Collection<Literal> ls = new HashSet<>();
 
@@ -530,28 +1044,150 @@ public class HypermedeaArtifact extends Artifact {
         return f;
     }
 
+    /**
+     * Executes {@link #updateRepresentations(Map)} on a single resource.
+     */
     private void updateRepresentation(String resourceURI, Collection<Literal> newRepresentation) {
-        Set<ObsProperty> props = new HashSet<>();
+        updateRepresentations(Collections.singletonMap(resourceURI, newRepresentation));
+    }
 
-        for (Literal t : newRepresentation) {
-            ObsProperty p = defineObsProperty(t.getFunctor(), t.getTerms().toArray());
+    /**
+     * Replace the representation of several resources with new ones, in a single batch: agents observe all
+     * changes at once, when the operation (or external session) in which the batch is applied commits.
+     * <p>
+     * Only the difference between old and new representations is applied to the artifact's observable properties:
+     * literals that are part of both representations are left untouched (agents observe no change for them).
+     * The observable property of a literal that is no longer part of a representation is re-used, when possible,
+     * for a new literal of the same representation (with same functor, arity and annotations), by updating its
+     * values (see {@link RepresentationDiff}). Remaining properties are removed. CArtAgO only allows to remove
+     * a property by template, which requires a search among all properties with the same name: re-using properties
+     * avoids most of these searches when a representation is refreshed, but removing <code>k</code> properties
+     * (e.g. when a resource is forgotten) takes <code>O(k * n)</code>, where <code>n</code> is the number of
+     * properties with the same name in the artifact (e.g. all <code>rdf/3</code> properties).
+     * <p>
+     * If the artifact's cache has a memory budget (see {@link RepresentationCache}), resources are then evicted
+     * until the budget is met, as if {@link #forget(String) forget} had been called on them (watched resources
+     * are never evicted). Evicted resources are kept in the persistent store, if any (see {@link PersistentStore}).
+     *
+     * @param newRepresentations the new representation of each resource (empty to forget the resource)
+     */
+    protected void updateRepresentations(Map<String, Collection<Literal>> newRepresentations) {
+        for (Map.Entry<String, Collection<Literal>> kv : newRepresentations.entrySet()) {
+            Set<Literal> newRepresentation = new LinkedHashSet<>(kv.getValue());
 
-            if (t.hasAnnot())
-                for (Term a : t.getAnnots().getAsList()) p.addAnnot(a);
+            applyRepresentation(kv.getKey(), newRepresentation);
+            cache.update(kv.getKey(), newRepresentation);
+
+            if (persistentStore != null && !restoring) persistRepresentation(kv.getKey(), newRepresentation);
+        }
 
-            p.addAnnot(ASSyntax.createStructure(SOURCE_FUNCTOR, ASSyntax.createString(resourceURI)));
+        if (cache.isBounded()) {
+            // evicted resources are forgotten (watched resources are pinned and never evicted)
+            // but stay in the persistent store: only an explicit forget (or deletion) removes them
+            for (String resourceURI : cache.evict()) applyRepresentation(resourceURI, Collections.emptySet());
 
-            props.add(p);
+            for (String resourceURI : newRepresentations.keySet()) updateCacheEntry(resourceURI);
+
+            getObsProperty(CACHE_SIZE_FUNCTOR).updateValues(cache.getLiteralCount(), cache.getByteCount());
+            getObsProperty(CACHE_EVICTIONS_FUNCTOR).updateValue(cache.getEvictionCount());
         }
+    }
 
-        if (representations.containsKey(resourceURI)) {
-            for (ObsProperty p : representations.get(resourceURI)) {
-                removeObsPropertyByTemplate(p.getName(), p.getValues());
-            }
+    /**
+     * Apply the difference between the current and the new representation of a resource (see
+     * {@link #updateRepresentations(Map)}).
+     */
+    private void applyRepresentation(String resourceURI, Set<Literal> newRepresentation) {
+        // evicted resources also go through this method: the persistent store is updated by the caller only
+        Map<Literal, ObsProperty> previous = representations.getOrDefault(resourceURI, Collections.emptyMap());
+
+        RepresentationDiff<Literal, ObsProperty> diff =
+            new RepresentationDiff<>(previous, newRepresentation, HypermedeaArtifact::getShape);
+
+        Map<Literal, ObsProperty> props = new HashMap<>(diff.getKept());
+
+        for (Map.Entry<Literal, ObsProperty> kv : diff.getRecycled().entrySet()) {
+            kv.getValue().updateValues(getValues(kv.getKey()));
+            props.put(kv.getKey(), kv.getValue());
+        }
+
+        // a single source annotation is shared by all properties of all representations of the resource
+        Term source = TermInterner.getShared().intern(
+            ASSyntax.createStructure(SOURCE_FUNCTOR, TermInterner.getShared().createString(resourceURI)));
+
+        for (Literal t : diff.getAdded()) {
+            ObsProperty p = defineObsProperty(t.getFunctor(), getValues(t));
+
+            if (t.hasAnnot())
+                for (Term a : t.getAnnots().getAsList()) p.addAnnot(a);
+
+            p.addAnnot(source);
+            props.put(t, p);
         }
 
+        // CArtAgO only removes properties by template: one search per property (see updateRepresentations)
+        for (ObsProperty p : diff.getRemoved()) removeObsPropertyByTemplate(p.getName(), p.getValues());
+
         if (props.isEmpty()) representations.remove(resourceURI);
         else representations.put(resourceURI, props);
+
+        if (store != null) store.update(resourceURI, newRepresentation);
+
+        if (cacheEntries.containsKey(resourceURI) && newRepresentation.isEmpty()) {
+            removeObsPropertyByTemplate(CACHE_ENTRY_FUNCTOR, cacheEntries.remove(resourceURI).getValues());
+        }
+    }
+
+    /**
+     * Write the new representation of a resource to the persistent store (an empty representation removes it).
+     */
+    private void persistRepresentation(String resourceURI, Set<Literal> newRepresentation) {
+        try {
+            persistentStore.put(getStoreKey(resourceURI), newRepresentation);
+        } catch (IOException e) {
+            LOGGER.warning("Representation cannot be persisted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the source under which a representation is persisted, qualified by the artifact's name
+     * (the persistent store is shared by all artifacts of the JVM, see {@link PersistentStore#open(java.nio.file.Path)})
+     */
+    private String getStoreKey(String resourceURI) {
+        // no space in URIs
+        return getId().getName() + " " + resourceURI;
+    }
+
+    /**
+     * Update the <code>cache_entry(URI, Literals, Bytes)</code> property of a resource, if it is in the cache.
+     */
+    private void updateCacheEntry(String resourceURI) {
+        long literals = cache.getLiteralCount(resourceURI);
+        if (literals == 0) return;
+
+        long bytes = cache.getByteCount(resourceURI);
+        ObsProperty p = cacheEntries.get(resourceURI);
+
+        if (p == null) cacheEntries.put(resourceURI, defineObsProperty(CACHE_ENTRY_FUNCTOR, resourceURI, literals, bytes));
+        else p.updateValues(resourceURI, literals, bytes);
+    }
+
+    /**
+     * @return the values of an observable property exposing the literal
+     */
+    private static Object[] getValues(Literal t) {
+        // terms are accessed one by one, not to expand compact literals (see CompactTriple)
+        Object[] values = new Object[t.getArity()];
+        for (int i = 0; i < values.length; i++) values[i] = t.getTerm(i);
+
+        return values;
+    }
+
+    /**
+     * @return a key identifying literals whose observable properties are interchangeable
+     */
+    private static List<Object> getShape(Literal t) {
+        return Arrays.asList(t.getFunctor(), t.getArity(), t.hasAnnot() ? t.getAnnots() : null);
     }
 
 }
@@ -0,0 +1,173 @@
+package org.hypermedea;
+
+import cartago.OPERATION;
+import jason.asSyntax.Literal;
+
+import java.util.*;
+
+/**
+ * <p>
+ *   Hypermedea artifact that can also crawl Linked Data, i.e. fetch resources from seed URIs and follow links
+ *   between them, in parallel and without agent intervention (see {@link Crawler}). All crawled representations
+ *   are exposed as observable properties of the artifact, as if agents had executed a
+ *   {@link #get(String) get} operation on each crawled resource.
+ * </p>
+ * <p>
+ *   The artifact exposes the state of the crawl with the following observable properties:
+ * </p>
+ * <ul>
+ *   <li><code>crawler_status(Running)</code>: <code>true</code> while a crawl is running, <code>false</code> otherwise,</li>
+ *   <li><code>crawler_progress(Fetched, Failed, Frontier)</code>: number of resources fetched, that could not be fetched
+ *   and waiting to be fetched,</li>
+ *   <li><code>crawler_throughput(ResourcesPerSecond)</code>: average number of resources fetched per second.</li>
+ * </ul>
+ * <p>
+ *   Progress properties are updated with each batch of crawled representations. An agent can wait for the end
+ *   of a crawl as follows:
+ * </p>
+ * <pre><code>+!crawl_then_wait(URI) &lt;-
+    crawl(URI) ;
+    if (not crawler_status(false)) { .wait({ +crawler_status(false) }) } ;
+  .</code></pre>
+ */
+public class NavigationArtifact extends HypermedeaArtifact {
+
+    public static final String CRAWLER_STATUS_FUNCTOR = "crawler_status";
+
+    public static final String CRAWLER_PROGRESS_FUNCTOR = "crawler_progress";
+
+    public static final String CRAWLER_THROUGHPUT_FUNCTOR = "crawler_throughput";
+
+    private Crawler crawler = null;
+
+    /**
+     * Number of crawls started by the artifact (identifier of the current crawl).
+     */
+    private int crawlCount = 0;
+
+    @Override
+    public void init() {
+        super.init();
+
+        defineObsProperty(CRAWLER_STATUS_FUNCTOR, false);
+        defineObsProperty(CRAWLER_PROGRESS_FUNCTOR, 0, 0, 0);
+        defineObsProperty(CRAWLER_THROUGHPUT_FUNCTOR, 0);
+    }
+
+    @Override
+    protected void dispose() {
+        Crawler c = crawler;
+        crawler = null;
+
+        // results of the crawl are ignored from now on
+        if (c != null) c.stop();
+
+        super.dispose();
+    }
+
+    /**
+     * Executes {@link #crawl(Object[], Object[], Object)} on a single seed, following all links.
+     */
+    @OPERATION
+    public void crawl(String seedURI) {
+        crawl(new Object[] { seedURI }, new Object[0], Integer.getInteger(Crawler.MAX_DEPTH_PROPERTY, Crawler.DEFAULT_MAX_DEPTH));
+    }
+
+    /**
+     * Executes {@link #crawl(Object[], Object[], Object)} on a single seed.
+     */
+    @OPERATION
+    public void crawl(String seedURI, Object[] linkPredicates) {
+        crawl(new Object[] { seedURI }, linkPredicates, Integer.getInteger(Crawler.MAX_DEPTH_PROPERTY, Crawler.DEFAULT_MAX_DEPTH));
+    }
+
+    /**
+     * Starts crawling from the given seed resources, following links whose predicate is one of {@code linkPredicates}
+     * (or any link if none is given). The operation returns immediately: the end of the crawl is signaled by the
+     * observable property <code>crawler_status(false)</code>. A single crawl can run at a time.
+     *
+     * @param seedURIs URIs of the first resources to fetch
+     * @param linkPredicates URIs of the predicates of links to follow (all links if empty)
+     * @param maxDepth maximum number of links between a seed and a crawled resource (an integer)
+     */
+    @OPERATION
+    public void crawl(Object[] seedURIs, Object[] linkPredicates, Object maxDepth) {
+        if (crawler != null && !crawler.hasEnded()) {
+            failed("A crawl is already running");
+            return;
+        }
+
+        List<String> seeds = new ArrayList<>();
+        for (Object uri : seedURIs) seeds.add(uri.toString());
+
+        List<String> predicates = new ArrayList<>();
+        for (Object p : linkPredicates) predicates.add(p.toString());
+
+        int depth;
+
+        try {
+            depth = maxDepth instanceof Number ? ((Number) maxDepth).intValue() : Integer.parseInt(maxDepth.toString());
+        } catch (NumberFormatException e) {
+            failed("Maximum depth isn't an integer: " + maxDepth);
+            return;
+        }
+
+        int id = ++crawlCount;
+
+        Crawler c = new Crawler(predicates, depth, new Crawler.Listener() {
+            @Override
+            public void onBatch(Map<String, Collection<Literal>> representations) {
+                beginExtSession();
+
+                if (isCurrentCrawl(id)) {
+                    updateRepresentations(representations);
+                    updateProgress();
+                }
+
+                endExtSession();
+            }
+
+            @Override
+            public void onEnd() {
+                beginExtSession();
+
+                if (isCurrentCrawl(id)) {
+                    updateProgress();
+                    getObsProperty(CRAWLER_STATUS_FUNCTOR).updateValue(false);
+                }
+
+                endExtSession();
+            }
+        });
+
+        crawler = c;
+        getObsProperty(CRAWLER_STATUS_FUNCTOR).updateValue(true);
+
+        // the crawler may end (and notify the artifact) before start() returns
+        c.start(seeds);
+    }
+
+    /**
+     * Stops the current crawl, if any. Resources for which a request is in flight are still added to the artifact's
+     * representations.
+     */
+    @OPERATION
+    public void stopCrawl() {
+        Crawler c = crawler;
+        if (c != null) c.stop();
+    }
+
+    /**
+     * @return {@code false} if the crawl with the given identifier was replaced by another crawl
+     *         or if the artifact was disposed
+     */
+    private boolean isCurrentCrawl(int id) {
+        return crawler != null && id == crawlCount;
+    }
+
+    private void updateProgress() {
+        getObsProperty(CRAWLER_PROGRESS_FUNCTOR).updateValues(crawler.getFetchedCount(), crawler.getFailedCount(), crawler.getFrontierSize());
+        getObsProperty(CRAWLER_THROUGHPUT_FUNCTOR).updateValue(crawler.getThroughput());
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.hypermedea;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * <p>
+ *   Difference between the current representation of a resource, whose literals are each exposed by a property,
+ *   and a new representation. Each literal of the new representation is either:
+ * </p>
+ * <ul>
+ *   <li><i>kept</i>, if it is part of both representations (its property is left untouched),</li>
+ *   <li><i>recycled</i>, if the property of a vanished literal with the same shape (e.g. same functor, arity
+ *   and annotations) can be re-used for it, by updating the property's values,</li>
+ *   <li><i>added</i>, otherwise (a new property must be defined).</li>
+ * </ul>
+ * <p>
+ *   Properties of vanished literals that are not recycled are <i>removed</i>.
+ * </p>
+ *
+ * @param <L> type of literals
+ * @param <P> type of properties
+ */
+class RepresentationDiff<L, P> {
+
+    private final Map<L, P> kept = new HashMap<>();
+
+    private final Map<L, P> recycled = new LinkedHashMap<>();
+
+    private final List<L> added = new ArrayList<>();
+
+    private final List<P> removed = new ArrayList<>();
+
+    /**
+     * Compute the difference between two representations.
+     *
+     * @param previous the literals of the current representation and their property
+     * @param next the literals of the new representation
+     * @param shape a key identifying literals whose properties are interchangeable
+     */
+    RepresentationDiff(Map<L, P> previous, Collection<L> next, Function<L, ?> shape) {
+        // properties of vanished literals, indexed by shape
+        Map<Object, Deque<P>> vanished = new HashMap<>();
+
+        for (Map.Entry<L, P> p : previous.entrySet()) {
+            if (!next.contains(p.getKey()))
+                vanished.computeIfAbsent(shape.apply(p.getKey()), k -> new ArrayDeque<>()).add(p.getValue());
+        }
+
+        for (L t : next) {
+            P p = previous.get(t);
+
+            if (p != null) {
+                kept.put(t, p);
+            } else {
+                Deque<P> recyclable = vanished.get(shape.apply(t));
+
+                if (recyclable != null && !recyclable.isEmpty()) recycled.put(t, recyclable.poll());
+                else added.add(t);
+            }
+        }
+
+        for (Deque<P> remaining : vanished.values()) removed.addAll(remaining);
+    }
+
+    /**
+     * @return literals of both representations and their (unchanged) property
+     */
+    Map<L, P> getKept() {
+        return kept;
+    }
+
+    /**
+     * @return new literals and the property of a vanished literal whose values must be updated
+     */
+    Map<L, P> getRecycled() {
+        return recycled;
+    }
+
+    /**
+     * @return new literals for which a property must be defined
+     */
+    List<L> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return properties of vanished literals that must be removed
+     */
+    List<P> getRemoved() {
+        return removed;
+    }
+
+}
@@ -29,6 +29,19 @@ public interface RepresentationHandler {
      */
     void serialize(Collection<Literal> terms, OutputStream out, String resourceURI) throws UnsupportedRepresentationException, IOException;
 
+    /**
+     * Serialize the input representation into an alternative representation, in the given Content-Type.
+     * The default implementation ignores the Content-Type and calls {@link #serialize(Collection, OutputStream, String)}.
+     *
+     * @param terms some resource representation as Jason terms
+     * @param out a stream in which the alternative representation will be serialized
+     * @param resourceURI URI of the resource being represented
+     * @param contentType one of the Content-Types returned by {@link #getSupportedContentTypes()}
+     */
+    default void serialize(Collection<Literal> terms, OutputStream out, String resourceURI, String contentType) throws UnsupportedRepresentationException, IOException {
+        serialize(terms, out, resourceURI);
+    }
+
     /**
      * Deserialize the input representation into a collection of Jason terms.
      *
@@ -7,15 +7,120 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
- * Factory class to (de)serialize resource representations in (from) known Content-Types.
+ * <p>
+ *   Factory class to (de)serialize resource representations in (from) known Content-Types.
+ * </p>
+ * <p>
+ *   Handlers registered as services are indexed by functor and by Content-Type when the class is loaded
+ *   (or when {@link #reload()} is called). Supported Content-Types given as regular expressions are compiled
+ *   once. Resolved media types are memoized, in a bounded cache.
+ * </p>
  */
 public class RepresentationHandlers {
 
+    /**
+     * Maximum number of media types kept in the memo of resolved handlers.
+     */
+    public static final int MAX_MEMO_SIZE = 256;
+
+    /**
+     * Immutable index of the registered handlers.
+     */
+    private static class Index {
+
+        private final Map<String, RepresentationHandler> byFunctor = new HashMap<>();
+
+        private final Map<String, RepresentationHandler> byContentType = new HashMap<>();
+
+        private final List<Map.Entry<Pattern, RepresentationHandler>> patterns = new ArrayList<>();
+
+        private final Map<String, Optional<RepresentationHandler>> memo = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Optional<RepresentationHandler>> eldest) {
+                return size() > MAX_MEMO_SIZE;
+            }
+        };
+
+        private Index(Iterable<RepresentationHandler> handlers) {
+            // rank of the Content-Type indexed for each handler (0: favorite)
+            Map<String, Integer> ranks = new HashMap<>();
+
+            for (RepresentationHandler h : handlers) {
+                // TODO same as for content types: manage hierarchy
+                byFunctor.putIfAbsent(h.getFunctor(), h);
+
+                List<String> supportedCTs = h.getSupportedContentTypes();
+
+                for (int i = 0; i < supportedCTs.size(); i++) {
+                    String supportedCT = supportedCTs.get(i);
+
+                    if (!ranks.containsKey(supportedCT) || i <= ranks.get(supportedCT)) {
+                        byContentType.put(supportedCT, h);
+                        ranks.put(supportedCT, i);
+                    }
+
+                    patterns.add(new AbstractMap.SimpleImmutableEntry<>(compile(supportedCT), h));
+                }
+            }
+        }
+
+        private synchronized int getMemoSize() {
+            return memo.size();
+        }
+
+        private synchronized Optional<RepresentationHandler> lookup(String ct) {
+            return memo.computeIfAbsent(ct, this::resolve);
+        }
+
+        private Optional<RepresentationHandler> resolve(String ct) {
+            RepresentationHandler h = byContentType.get(ct);
+
+            if (h != null) return Optional.of(h);
+
+            return patterns.stream()
+                .filter(kv -> kv.getKey().matcher(ct).matches())
+                .map(Map.Entry::getValue)
+                .findFirst();
+        }
+
+        private static Pattern compile(String supportedCT) {
+            try {
+                return Pattern.compile(supportedCT);
+            } catch (PatternSyntaxException e) {
+                return Pattern.compile(Pattern.quote(supportedCT));
+            }
+        }
+
+    }
+
     private static final ServiceLoader<RepresentationHandler> loader = ServiceLoader.load(RepresentationHandler.class);
 
+    private static volatile Index index = new Index(loader);
+
+    /**
+     * Reload handlers registered as services and rebuild their index
+     * (e.g. after new handlers were added to the classpath).
+     */
+    public static synchronized void reload() {
+        loader.reload();
+        index = new Index(loader);
+    }
+
     public static void serialize(Collection<Literal> terms, OutputStream out, String resourceURI) throws UnsupportedRepresentationException, IOException {
+        serialize(terms, out, resourceURI, null);
+    }
+
+    /**
+     * Serialize the input terms in the given Content-Type (if supported by the handler of the terms)
+     * or in the handler's default Content-Type.
+     *
+     * @param contentType a Content-Type or {@code null}
+     */
+    public static void serialize(Collection<Literal> terms, OutputStream out, String resourceURI, String contentType) throws UnsupportedRepresentationException, IOException {
         if (terms.isEmpty()) {
             // do not write anything
             out.close();
@@ -28,7 +133,8 @@ public class RepresentationHandlers {
         if (opt.isEmpty())
             throw new UnsupportedRepresentationException("No handler found for Jason functor: " + fn);
 
-        opt.get().serialize(terms, out, resourceURI);
+        if (contentType == null) opt.get().serialize(terms, out, resourceURI);
+        else opt.get().serialize(terms, out, resourceURI, getMediaType(contentType));
     }
 
     public static Collection<Literal> deserialize(InputStream representation, String resourceURI, String contentType) throws UnsupportedRepresentationException, IOException {
@@ -66,38 +172,22 @@ public class RepresentationHandlers {
     }
 
     private static Optional<RepresentationHandler> loadFromFunctor(String fn) {
-        for (RepresentationHandler h : loader) {
-            // TODO same as for loadFromContentType: manage hierarchy
-            if (h.getFunctor().equals(fn)) return Optional.of(h);
-        }
-
-        return Optional.empty();
+        return Optional.ofNullable(index.byFunctor.get(fn));
     }
 
-    private static Optional<RepresentationHandler> loadFromContentType(String ct) {
-        Map<Integer, RepresentationHandler> exactMatches = new HashMap<>();
-        Collection<RepresentationHandler> closeMatches = new ArrayList<>();
-
-        for (RepresentationHandler h : loader) {
-            List<String> supportedCTs = h.getSupportedContentTypes();
-
-            for (int i = 0; i < supportedCTs.size(); i++) {
-                String supportedCT = supportedCTs.get(i);
-
-                if (supportedCT.equals(ct)) {
-                    // record index of CT for handler (0: favorite)
-                    exactMatches.put(i, h);
-                    break;
-                } else if (ct.matches(supportedCT)) {
-                    closeMatches.add(h);
-                }
-            }
-        }
-
-        Optional<Integer> rankOpt = exactMatches.keySet().stream().sorted().findFirst();
+    /**
+     * @return the handler of the input media type: the handler indexed for it if any, otherwise the first handler
+     * with a matching Content-Type pattern (in order of registration)
+     */
+    static Optional<RepresentationHandler> loadFromContentType(String ct) {
+        return index.lookup(ct);
+    }
 
-        if (rankOpt.isPresent()) return Optional.of(exactMatches.get(rankOpt.get()));
-        else return closeMatches.stream().findFirst();
+    /**
+     * @return the number of media types in the memo of resolved handlers
+     */
+    static int getMemoSize() {
+        return index.getMemoSize();
     }
 
     private RepresentationHandlers() {}
@@ -6,6 +6,7 @@ import org.hypermedea.ct.BaseRepresentationHandler;
 import org.hypermedea.ct.UnsupportedRepresentationException;
 import org.hypermedea.tools.Identifiers;
 import org.hypermedea.tools.KVPairs;
+import org.hypermedea.tools.TermInterner;
 
 import javax.json.*;
 import javax.json.stream.JsonGenerator;
@@ -28,6 +29,12 @@ public class JsonHandler extends BaseRepresentationHandler {
 
     public static final String[] APPLICATION_JSON_CT = { "application/json", "application/[^+]+\\+json" };
 
+    /**
+     * Number of bytes kept from the beginning of a representation, to parse it again as a single number
+     * if it isn't valid JSON for the JSON parser.
+     */
+    private static final int NUMBER_MARK_LIMIT = 1024;
+
     public JsonHandler() {
         super(JSON_FUNCTOR, APPLICATION_JSON_CT);
     }
@@ -54,6 +61,10 @@ public class JsonHandler extends BaseRepresentationHandler {
     public Collection<Literal> deserialize(InputStream representation, String resourceURI, String contentType) throws UnsupportedRepresentationException {
         JsonValue value;
 
+        // representations may be streamed from the network
+        if (!representation.markSupported()) representation = new BufferedInputStream(representation);
+        representation.mark(NUMBER_MARK_LIMIT);
+
         try {
             JsonReader reader = Json.createReader(representation);
             value = reader.readValue();
@@ -200,7 +211,7 @@ public class JsonHandler extends BaseRepresentationHandler {
         } else if (type.equals(JsonValue.ValueType.NUMBER)) {
             return ASSyntax.createNumber(((JsonNumber) value).doubleValue());
         } else if (type.equals(JsonValue.ValueType.NULL)) {
-            return ASSyntax.createAtom("null");
+            return TermInterner.getShared().createAtom("null");
         } else if (type.equals(JsonValue.ValueType.STRING)) {
             return ASSyntax.createString(((JsonString) value).getString());
         } else if (type.equals(JsonValue.ValueType.ARRAY)) {
@@ -213,7 +224,7 @@ public class JsonHandler extends BaseRepresentationHandler {
             Collection<Term> members = new HashSet<>();
 
             for (Map.Entry<String, JsonValue> kv : ((JsonObject) value).entrySet()) {
-                Atom k = ASSyntax.createAtom(kv.getKey());
+                Atom k = TermInterner.getShared().createAtom(kv.getKey());
                 Term v = readJsonValue(kv.getValue());
 
                 members.add(ASSyntax.createStructure(JSON_MEMBER_FUNCTOR, k, v));
@@ -0,0 +1,115 @@
+package org.hypermedea.ct.rdf;
+
+import jason.asSyntax.Literal;
+import jason.asSyntax.LiteralImpl;
+import jason.asSyntax.Term;
+import org.hypermedea.tools.TermDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ *   Triple literal <code>rdf(S, P, O)</code> whose terms are stored as identifiers in the {@link TermDictionary}
+ *   of its representation. Terms are decoded on access (e.g. when an agent unifies a pattern against
+ *   the triple), without being stored in the literal.
+ * </p>
+ * <p>
+ *   If the literal's terms are modified or if its list of terms is requested, the triple is expanded
+ *   into a regular literal (and loses its compactness).
+ * </p>
+ * <p>
+ *   Only the references to the triple's terms are encoded: the literal keeps the rest of Jason's literal
+ *   structure (functor, annotations) and observable properties created from it hold decoded terms.
+ * </p>
+ */
+public class CompactTriple extends LiteralImpl {
+
+    private TermDictionary dictionary;
+
+    private final int subject;
+
+    private final int predicate;
+
+    private final int object;
+
+    private boolean expanded = false;
+
+    /**
+     * @param dictionary dictionary in which terms are encoded
+     * @param subject dictionary identifier of the subject
+     * @param predicate dictionary identifier of the predicate
+     * @param object dictionary identifier of the object
+     * @param typeMap <code>rdf_type_map</code> annotation of the triple
+     */
+    public CompactTriple(TermDictionary dictionary, int subject, int predicate, int object, Term typeMap) {
+        super(RDFHandler.RDF_FUNCTOR);
+
+        this.dictionary = dictionary;
+        this.subject = subject;
+        this.predicate = predicate;
+        this.object = object;
+
+        addAnnot(typeMap);
+    }
+
+    @Override
+    public int getArity() {
+        return expanded ? super.getArity() : 3;
+    }
+
+    @Override
+    public Term getTerm(int i) {
+        if (expanded) return super.getTerm(i);
+
+        switch (i) {
+            case 0: return dictionary.decode(subject);
+            case 1: return dictionary.decode(predicate);
+            case 2: return dictionary.decode(object);
+            default: return null;
+        }
+    }
+
+    @Override
+    public List<Term> getTerms() {
+        expand();
+        return super.getTerms();
+    }
+
+    @Override
+    public Term[] getTermsArray() {
+        expand();
+        return super.getTermsArray();
+    }
+
+    @Override
+    public Literal setTerms(List<Term> l) {
+        expanded = true;
+        dictionary = null;
+        return super.setTerms(l);
+    }
+
+    @Override
+    public void setTerm(int i, Term t) {
+        expand();
+        super.setTerm(i, t);
+    }
+
+    @Override
+    public Literal addTerm(Term t) {
+        expand();
+        return super.addTerm(t);
+    }
+
+    private void expand() {
+        if (expanded) return;
+
+        List<Term> terms = new ArrayList<>(Arrays.asList(getTerm(0), getTerm(1), getTerm(2)));
+
+        expanded = true;
+        dictionary = null;
+        super.setTerms(terms);
+    }
+
+}
@@ -4,16 +4,29 @@ import jason.NoValueException;
 import jason.asSyntax.Literal;
 import jason.asSyntax.*;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.rdf.model.impl.ResourceImpl;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.Quad;
 import org.hypermedea.ct.BaseRepresentationHandler;
 import org.hypermedea.ct.UnsupportedRepresentationException;
 import org.hypermedea.tools.Identifiers;
+import org.hypermedea.tools.TermDictionary;
+import org.hypermedea.tools.TermInterner;
 
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.logging.Logger;
 
 /**
  * <p>
@@ -27,6 +40,23 @@ import java.util.HashSet;
  *   <li><code>application/n-quads</code></li>
  *   <li><code>application/rdf+xml</code></li>
  * </ul>
+ * <p>
+ *   Representations are deserialized in a streaming fashion: triples are turned into Jason literals
+ *   as they are parsed. Only triples of the default graph are kept. The number of triples kept per
+ *   representation can be capped with the system property <code>org.hypermedea.rdf.maxTriples</code>
+ *   (by default, it is unlimited). Triples beyond the cap are ignored.
+ * </p>
+ * <p>
+ *   URIs, blank nodes and type maps are interned (see {@link TermInterner}): all triples of all representations
+ *   share a single instance of each. If the system property <code>org.hypermedea.rdf.compact</code> is set
+ *   to <code>true</code>, triples are also encoded with a dictionary of the representation
+ *   (see {@link CompactTriple}).
+ * </p>
+ * <p>
+ *   Representations in Turtle (the default), N-Triples, TriG and N-Quads are serialized in a streaming
+ *   fashion as well (Turtle and TriG in blocks, without pretty-printing), without any intermediate model.
+ *   Over HTTP, the serialization is selected with the Content-Type form field.
+ * </p>
  *
  * @author Victor Charpenay
  */
@@ -47,73 +77,217 @@ public class RDFHandler extends BaseRepresentationHandler {
         "application/trig", "application/n-quads", "application/rdf+xml"
     };
 
+    /**
+     * Type map annotations for all combinations of node types (shared by all triples).
+     */
+    private static final Term[][][] TYPE_MAPS = new Term[3][3][3];
+
+    static {
+        Atom[] types = { RDF_TYPE_URI_ATOM, RDF_TYPE_BNODE_ATOM, RDF_TYPE_LITERAL_ATOM };
+
+        for (int s = 0; s < 3; s++)
+            for (int p = 0; p < 3; p++)
+                for (int o = 0; o < 3; o++)
+                    TYPE_MAPS[s][p][o] = ASSyntax.createStructure(RDF_TYPE_MAP_FUNCTOR, types[s], types[p], types[o]);
+    }
+
+    /**
+     * Prefix of Jason atoms representing blank nodes.
+     */
+    public static final String BNODE_PREFIX = "bnode_";
+
+    public static final String MAX_TRIPLES_PROPERTY = "org.hypermedea.rdf.maxTriples";
+
+    public static final long UNLIMITED_TRIPLES = -1;
+
+    public static final String COMPACT_PROPERTY = "org.hypermedea.rdf.compact";
+
+    private final static Logger LOGGER = Logger.getLogger(RDFHandler.class.getCanonicalName());
+
+    /**
+     * Exception thrown by {@link TermSink} to stop parsing once the triple cap is reached.
+     */
+    private static class CapReachedException extends RuntimeException {
+
+        private CapReachedException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    /**
+     * RIOT sink turning triples into Jason literals as they are parsed.
+     */
+    private class TermSink extends StreamRDFBase {
+
+        private final Collection<Literal> facts = new HashSet<>();
+
+        private final long maxTriples;
+
+        /**
+         * Dictionary of the representation if triples are encoded (see {@link CompactTriple}), {@code null} otherwise.
+         */
+        private final TermDictionary dictionary = Boolean.getBoolean(COMPACT_PROPERTY) ? new TermDictionary() : null;
+
+        private boolean capReached = false;
+
+        private TermSink(long maxTriples) {
+            this.maxTriples = maxTriples;
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            if (maxTriples >= 0 && facts.size() >= maxTriples) {
+                capReached = true;
+                throw new CapReachedException();
+            }
+
+            facts.add(getTripleLiteral(triple, dictionary));
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            // as when reading a dataset into a model, only the default graph is kept
+            if (quad.isTriple() || quad.isDefaultGraph()) triple(quad.asTriple());
+        }
+
+    }
+
     public RDFHandler() {
         super(RDF_FUNCTOR, RDF_CT);
     }
 
     @Override
     public void serialize(Collection<Literal> terms, OutputStream out, String resourceURI) throws UnsupportedRepresentationException {
-        Model m = ModelFactory.createDefaultModel();
-
-        for (Literal t : terms) {
-            try {
-                if (t.getArity() != 3) continue;
+        serialize(terms, out, resourceURI, supportedContentTypes.get(0));
+    }
 
-                Term s = t.getTerm(0);
-                Term p = t.getTerm(1);
-                Term o = t.getTerm(2);
+    @Override
+    public void serialize(Collection<Literal> terms, OutputStream out, String resourceURI, String contentType) throws UnsupportedRepresentationException {
+        Lang lang = RDFLanguages.contentTypeToLang(contentType);
+        if (lang == null || !supportedContentTypes.contains(contentType)) lang = RDFLanguages.contentTypeToLang(supportedContentTypes.get(0));
 
-                Term typeMap = t.getAnnot(RDF_TYPE_MAP_FUNCTOR);
-                if (!typeMap.isStructure()) continue;
+        RDFFormat format = StreamRDFWriter.defaultSerialization(lang);
 
-                Structure typeMap2 = (Structure) typeMap;
-                Term sType = typeMap2.getTerm(0);
-                Term pType = typeMap2.getTerm(1);
-                Term oType = typeMap2.getTerm(2);
+        if (format != null) {
+            StreamRDF writer = StreamRDFWriter.getWriterStream(out, format, null);
 
-                RDFNode subject = getTermRDFNode(s, sType);
-                RDFNode predicate = getTermRDFNode(p, pType);
-                RDFNode object = getTermRDFNode(o, oType);
+            writer.start();
+            for (Literal t : terms) {
+                Statement st = getStatement(t);
+                if (st != null) writer.triple(st.asTriple());
+            }
+            writer.finish();
+        } else {
+            Model m = ModelFactory.createDefaultModel();
 
-                m.add(getStatement(subject, predicate, object));
-            } catch (IllegalArgumentException e) {
-                // TODO log
-                e.printStackTrace();
+            for (Literal t : terms) {
+                Statement st = getStatement(t);
+                if (st != null) m.add(st);
             }
-        }
 
-        m.write(out, supportedContentTypes.get(0), resourceURI);
+            m.write(out, lang.getName(), resourceURI);
+        }
     }
 
     @Override
     public Collection<Literal> deserialize(InputStream representation, String resourceURI, String contentType) throws UnsupportedRepresentationException {
-        Model m = ModelFactory.createDefaultModel().read(representation, resourceURI, contentType);
-        Collection<Literal> facts = new HashSet<>();
-
-        for (Statement triple : m.listStatements().toList()) {
-            RDFNode s = triple.getSubject();
-            RDFNode p = triple.getPredicate();
-            RDFNode o = triple.getObject();
+        Lang lang = RDFLanguages.contentTypeToLang(contentType);
+        if (lang == null) lang = RDFLanguages.nameToLang(contentType);
 
-            Term subject = getRDFNodeTerm(s);
-            Term predicate = getRDFNodeTerm(p);
-            Term object = getRDFNodeTerm(o);
+        if (lang == null) throw new UnsupportedRepresentationException("Unknown RDF Content-Type: " + contentType);
 
-            Atom subjectType = getRDFTypeAtom(s);
-            Atom predicateType = getRDFTypeAtom(p);
-            Atom objectType = getRDFTypeAtom(o);
-            Term typeMap = ASSyntax.createStructure(RDF_TYPE_MAP_FUNCTOR, subjectType, predicateType, objectType);
+        TermSink sink = new TermSink(Long.getLong(MAX_TRIPLES_PROPERTY, UNLIMITED_TRIPLES));
 
-            Literal fact = ASSyntax.createLiteral(RDF_FUNCTOR, subject, predicate, object);
-            fact.addAnnot(typeMap);
+        try {
+            RDFParser.create().source(representation).base(resourceURI).lang(lang).parse(sink);
+        } catch (RuntimeException e) {
+            // some parsers may wrap exceptions thrown by the sink
+            if (!sink.capReached) throw e;
 
-            facts.add(fact);
+            LOGGER.warning(String.format("Representation of %s truncated after %d triples", resourceURI, sink.facts.size()));
         }
 
-        return facts;
+        if (sink.dictionary != null) sink.dictionary.seal();
+
+        return sink.facts;
+    }
+
+    /**
+     * Return the RDF triple represented by the input literal.
+     *
+     * @param t a literal of the form <code>rdf(S, P, O)[rdf_type_map(SType, PType, OType)]</code>
+     * @return a triple or {@code null} if the literal represents no valid triple
+     */
+    public static Triple getTriple(Literal t) {
+        Statement st = getStatement(t);
+        return st == null ? null : st.asTriple();
+    }
+
+    /**
+     * Return the literal representing the input RDF triple.
+     *
+     * @param triple an RDF triple
+     * @return a literal of the form <code>rdf(S, P, O)[rdf_type_map(SType, PType, OType)]</code>
+     */
+    public static Literal getLiteral(Triple triple) {
+        return getTripleLiteral(triple, null);
+    }
+
+    /**
+     * Return the Jason term representing the input RDF node, as in triple literals.
+     *
+     * @param n an RDF node (URI, blank node or literal)
+     * @return a Jason string, atom or number
+     */
+    public static Term getTerm(Node n) {
+        return getNodeTerm(n);
+    }
+
+    /**
+     * Return the RDF node represented by the input Jason term, as in triple literals.
+     *
+     * @param t a Jason term
+     * @param type the RDF type of the term (one of {@link #RDF_TYPE_URI_ATOM}, {@link #RDF_TYPE_BNODE_ATOM}
+     *             and {@link #RDF_TYPE_LITERAL_ATOM})
+     * @return an RDF node
+     * @throws IllegalArgumentException if the term cannot be converted to a node of the given type
+     */
+    public static Node getNode(Term t, Atom type) {
+        return getTermRDFNode(t, type).asNode();
+    }
+
+    /**
+     * @return the statement represented by the input literal or {@code null} if it is no valid triple
+     */
+    private static Statement getStatement(Literal t) {
+        try {
+            if (t.getArity() != 3) return null;
+
+            Term s = t.getTerm(0);
+            Term p = t.getTerm(1);
+            Term o = t.getTerm(2);
+
+            Term typeMap = t.getAnnot(RDF_TYPE_MAP_FUNCTOR);
+            if (typeMap == null || !typeMap.isStructure()) return null;
+
+            Structure typeMap2 = (Structure) typeMap;
+            Term sType = typeMap2.getTerm(0);
+            Term pType = typeMap2.getTerm(1);
+            Term oType = typeMap2.getTerm(2);
+
+            RDFNode subject = getTermRDFNode(s, sType);
+            RDFNode predicate = getTermRDFNode(p, pType);
+            RDFNode object = getTermRDFNode(o, oType);
+
+            return getStatement(subject, predicate, object);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Literal is not a valid RDF triple: " + e.getMessage());
+            return null;
+        }
     }
 
-    private Statement getStatement(RDFNode s, RDFNode p, RDFNode o) {
+    private static Statement getStatement(RDFNode s, RDFNode p, RDFNode o) {
         if (!s.isResource())
             throw new IllegalArgumentException("Non-resource node appears as subject of a triple: " + s);
 
@@ -125,7 +299,7 @@ public class RDFHandler extends BaseRepresentationHandler {
         return ResourceFactory.createStatement(s.asResource(), pp, o);
     }
 
-    private RDFNode getTermRDFNode(Term term, Term type) {
+    private static RDFNode getTermRDFNode(Term term, Term type) {
         if (type.equals(RDF_TYPE_URI_ATOM)) {
             if (!term.isString() && !term.isAtom())
                 throw new IllegalArgumentException("URI term isn't represented as a string: " + term);
@@ -135,7 +309,11 @@ public class RDFHandler extends BaseRepresentationHandler {
             if (!term.isAtom())
                 throw new IllegalArgumentException("Bnode term isn't an atom: " + term);
 
-            return new ResourceImpl(AnonId.create(Identifiers.getLexicalForm(term)));
+            // deserialized blank nodes are prefixed (see getNodeTerm)
+            String label = Identifiers.getLexicalForm(term);
+            if (label.startsWith(BNODE_PREFIX)) label = label.substring(BNODE_PREFIX.length());
+
+            return new ResourceImpl(AnonId.create(label));
         } else if (type.equals(RDF_TYPE_LITERAL_ATOM)) {
             return getTermRDFLiteral(term);
         } else {
@@ -143,7 +321,7 @@ public class RDFHandler extends BaseRepresentationHandler {
         }
     }
 
-    private RDFNode getTermRDFLiteral(Term t) {
+    private static RDFNode getTermRDFLiteral(Term t) {
         String lex = Identifiers.getLexicalForm(t);
 
         if (t.isNumeric()) {
@@ -163,17 +341,37 @@ public class RDFHandler extends BaseRepresentationHandler {
         return ResourceFactory.createPlainLiteral(lex);
     }
 
-    private Term getRDFNodeTerm(RDFNode n) {
-        if (n.isURIResource()) return ASSyntax.createString(n.asResource().getURI());
-        else if (n.isAnon()) return ASSyntax.createAtom("bnode_" + n.asResource().getId());
-        else if (n.asLiteral().getValue() instanceof Number) return ASSyntax.createNumber(n.asLiteral().getDouble());
-        else return ASSyntax.createString(n.asLiteral().getString());
+    private static Literal getTripleLiteral(Triple triple, TermDictionary dict) {
+        Node s = triple.getSubject();
+        Node p = triple.getPredicate();
+        Node o = triple.getObject();
+
+        Term typeMap = TYPE_MAPS[getRDFType(s)][getRDFType(p)][getRDFType(o)];
+
+        if (dict != null) {
+            return new CompactTriple(dict, dict.encode(getNodeTerm(s)), dict.encode(getNodeTerm(p)), dict.encode(getNodeTerm(o)), typeMap);
+        }
+
+        Literal fact = ASSyntax.createLiteral(RDF_FUNCTOR, getNodeTerm(s), getNodeTerm(p), getNodeTerm(o));
+        fact.addAnnot(typeMap);
+
+        return fact;
+    }
+
+    private static Term getNodeTerm(Node n) {
+        if (n.isURI()) return TermInterner.getShared().createString(n.getURI());
+        else if (n.isBlank()) return TermInterner.getShared().createAtom(BNODE_PREFIX + n.getBlankNodeLabel());
+        else if (n.getLiteralValue() instanceof Number) return ASSyntax.createNumber(((Number) n.getLiteralValue()).doubleValue());
+        else return ASSyntax.createString(n.getLiteralLexicalForm());
     }
 
-    private Atom getRDFTypeAtom(RDFNode n) {
-        if (n.isURIResource()) return RDF_TYPE_URI_ATOM;
-        else if (n.isAnon()) return RDF_TYPE_BNODE_ATOM;
-        else return RDF_TYPE_LITERAL_ATOM;
+    /**
+     * @return the index of the node's type in {@link #TYPE_MAPS}
+     */
+    private static int getRDFType(Node n) {
+        if (n.isURI()) return 0;
+        else if (n.isBlank()) return 1;
+        else return 2;
     }
 
 }
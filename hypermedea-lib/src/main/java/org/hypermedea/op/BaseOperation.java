@@ -4,22 +4,23 @@ import jason.asSyntax.Literal;
 import org.hypermedea.tools.Terms;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Implementation of basic operation features, including:
  * <ul>
  *   <li>management of operation states</li>
- *   <li>management of asynchronous calls and blocking calls</li>
+ *   <li>management of asynchronous calls and blocking calls (built on top of {@link #sendAsync()})</li>
  * </ul>
  */
 public abstract class BaseOperation implements Operation {
 
   /**
-   * Default value for {@link BaseOperation#timeout}
+   * Default value for {@link BaseOperation#timeout} (in seconds)
    */
   public static final long DEFAULT_TIMEOUT = 60l;
 
@@ -44,10 +45,14 @@ public abstract class BaseOperation implements Operation {
   protected boolean operationStarted = false;
 
   /**
-   * Semaphore to block getter if no response sent before call
-   * (if an error occurs, an empty value is passed to the semaphore)
+   * Future completed by the first response (or exceptionally, by the first error)
    */
-  private BlockingDeque<Optional<Response>> lastResponse = new LinkedBlockingDeque<>(1);
+  private final CompletableFuture<Response> response = new CompletableFuture<>();
+
+  /**
+   * Last response received (empty if the last outcome was an error)
+   */
+  private volatile Optional<Response> lastResponse = Optional.empty();
 
   /**
    * Callbacks registered for the pending request
@@ -55,14 +60,38 @@ public abstract class BaseOperation implements Operation {
   private Collection<ResponseCallback> callbacks = new LinkedList<>();
 
   /**
-   * Response timeout (in seconds): after request was sent,
-   * the Thing has {@code timeout} seconds to send a response
+   * Response timeout: after request was sent, the Thing has {@code timeout} to send a response
+   */
+  private Duration timeout = Duration.ofSeconds(DEFAULT_TIMEOUT);
+
+  /**
+   * Policy to retry the operation after transient failures (if idempotent)
+   */
+  private final RetryPolicy retryPolicy;
+
+  /**
+   * Number of requests sent so far (more than one if retried)
+   */
+  private volatile int attempts = 0;
+
+  private long firstAttemptTime;
+
+  /**
+   * Flag that the caller stopped waiting for a response (no further attempt is made)
    */
-  private long timeout = DEFAULT_TIMEOUT;
+  private volatile boolean abandoned = false;
+
+  /**
+   * Scheduler through which requests are sent
+   */
+  private OperationScheduler scheduler = OperationScheduler.getDefault();
+
+  private final static Logger LOGGER = Logger.getLogger(BaseOperation.class.getCanonicalName());
 
   public BaseOperation(String targetURI, Map<String, Object> formFields) {
     this.target = targetURI;
     this.form = formFields;
+    this.retryPolicy = RetryPolicy.fromForm(formFields);
   }
 
   @Override
@@ -80,12 +109,40 @@ public abstract class BaseOperation implements Operation {
     return payload;
   }
 
+  /**
+   * @return the number of requests sent so far (more than one if the operation was retried)
+   */
+  public int getAttemptCount() {
+    return attempts;
+  }
+
+  /**
+   * Set the scheduler through which the operation's requests are sent, instead of the
+   * {@link OperationScheduler#getDefault() default scheduler} (e.g. to isolate operations from each other).
+   * Must be called before the operation is started.
+   *
+   * @param scheduler an operation scheduler
+   */
+  public void setScheduler(OperationScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
   /**
    * Set timeout between request and (first) response.
    *
    * @param timeout timeout (in seconds). A timeout of 0s is equivalent to no timeout.
    */
   public void setTimeout(long timeout) {
+    setTimeout(Duration.ofSeconds(timeout));
+  }
+
+  /**
+   * Set timeout between request and (first) response, with sub-second precision.
+   *
+   * @param timeout timeout (in milliseconds or more). A timeout of zero is equivalent to no timeout.
+   */
+  public void setTimeout(Duration timeout) {
+    if (timeout.isNegative()) throw new IllegalArgumentException("Timeout must not be negative: " + timeout);
     this.timeout = timeout;
   }
 
@@ -128,7 +185,12 @@ public abstract class BaseOperation implements Operation {
   }
 
   /**
-   * Ensure that only a single request is sent.
+   * Ensure that only a single request is sent. The request is sent when allowed by the operation's
+   * scheduler (by default, the {@link OperationScheduler#getDefault() default scheduler}): it may thus be queued.
+   * If the operation is safe and an identical operation is already in flight, no request is sent:
+   * the response to the other operation is also passed to this operation (see {@link SingleFlight}).
+   * If the operation is idempotent and fails with a transient error, its request is sent again
+   * (see {@link RetryPolicy}).
    * protocol binding-dependent behavior is implemented in {@link #sendSingleRequest()}.
    *
    * @throws OperationAlreadyStartedException
@@ -138,7 +200,20 @@ public abstract class BaseOperation implements Operation {
   public void sendRequest() throws OperationAlreadyStartedException, IOException {
     if (operationStarted) throw new OperationAlreadyStartedException();
 
-    sendSingleRequest();
+    if (isSafe() && !isAsync() && SingleFlight.join(this)) {
+      operationStarted = true;
+      return;
+    }
+
+    firstAttemptTime = System.nanoTime();
+
+    try {
+      scheduler.submit(this, this::sendAttempt, this::onError);
+    } catch (IOException | RuntimeException e) {
+      SingleFlight.land(this).forEach(op -> op.onError(e));
+      throw e;
+    }
+
     operationStarted = true;
 
     if (isAsync() && callbacks.isEmpty()) end();
@@ -146,19 +221,65 @@ public abstract class BaseOperation implements Operation {
   }
 
   /**
-   * Use a semaphore ({@link BlockingDeque} of size 1) to implement
-   * the expected behavior of {@link Operation#getResponse()}.
+   * Send the request (see {@link #sendRequest()}) and return a future completed by the first
+   * response. The future fails with a {@link TimeoutException} if no response is received before the
+   * operation's timeout. If it is cancelled or if it times out, the operation is aborted (see {@link #abort()}).
+   * On timeout, the operation is aborted before the future fails.
    */
   @Override
-  public Response getResponse() throws NoResponseException {
+  public CompletableFuture<Response> sendAsync() {
     try {
-      Optional<Response> rOpt = timeout > 0 ? lastResponse.poll(timeout, TimeUnit.SECONDS) : lastResponse.take();
+      sendRequest();
+    } catch (IOException | RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    CompletableFuture<Response> copy = response.copy();
+    if (!timeout.isZero()) copy.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+    CompletableFuture<Response> f = new CompletableFuture<>();
+
+    // the operation is aborted before the caller sees the timeout
+    copy.whenComplete((r, e) -> {
+      if (e instanceof TimeoutException) cancel();
+
+      if (e == null) f.complete(r);
+      else f.completeExceptionally(e);
+    });
 
-      if (rOpt == null || rOpt.isEmpty()) throw new NoResponseException();
-      else return rOpt.get();
-    } catch (InterruptedException | IOException e) {
-      throw new RuntimeException(e);
+    f.whenComplete((r, e) -> {
+      if (e instanceof CancellationException && copy.cancel(false)) cancel();
+    });
+
+    return f;
+  }
+
+  /**
+   * Wait for the future completed by the first response (see {@link #sendAsync()}) and return
+   * the last response received so far, to implement the expected behavior of {@link Operation#getResponse()}.
+   * If no response is received before the operation's timeout, the operation is aborted (see {@link #abort()}).
+   */
+  @Override
+  public Response getResponse() throws NoResponseException {
+    try {
+      if (timeout.isZero()) response.get();
+      else response.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // as in sendAsync(), the operation is aborted (and no longer counts as in flight)
+      cancel();
+
+      throw new NoResponseException(e);
+    } catch (ExecutionException e) {
+      // last outcome checked below (an asynchronous operation may have recovered)
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new NoResponseException(e);
     }
+
+    Optional<Response> rOpt = lastResponse;
+
+    if (rOpt.isEmpty()) throw new NoResponseException();
+    else return rOpt.get();
   }
 
   @Override
@@ -214,25 +335,120 @@ public abstract class BaseOperation implements Operation {
   }
 
   /**
-   * Pass the input response to the semaphore and notify registered callbacks.
+   * <p>
+   *   Stop the operation before it completes, e.g. if the caller is no longer interested in its response.
+   * </p>
+   * <p>
+   *   Some implementations are protocol binding-dependent. The default implementation calls {@link #end()}.
+   * </p>
+   */
+  protected void abort() throws IOException {
+    end();
+  }
+
+  /**
+   * Complete the response future and notify registered callbacks.
    *
    * @param r a response received by the Thing during the operation
    */
   protected void onResponse(Response r) {
-    lastResponse.clear();
+    scheduler.release(this, r.getRetryAfter());
+
+    if (!isAsync() && retryPolicy.isTransient(r) && retry(r.getRetryAfter())) return;
+    if (!isAsync()) retryPolicy.recordOutcome(attempts, !retryPolicy.isTransient(r));
 
-    lastResponse.push(Optional.of(r));
+    Collection<BaseOperation> followers = SingleFlight.land(this);
+
+    lastResponse = Optional.of(r);
+    response.complete(r);
     callbacks.forEach(cb -> cb.onResponse(r));
+
+    followers.forEach(op -> op.onResponse(r));
   }
 
   /**
-   * Pass an empty value to the semaphore and notify registered callbacks of an error.
+   * Complete the response future exceptionally and notify registered callbacks of an error
+   * of unknown cause (the operation isn't retried).
    */
   protected void onError() {
-    lastResponse.clear();
+    onError(null);
+  }
+
+  /**
+   * Complete the response future exceptionally and notify registered callbacks of an error.
+   * If the error is transient (see {@link #isTransient(Throwable)}), the operation may be retried instead.
+   *
+   * @param cause the cause of the error (or {@code null} if unknown)
+   */
+  protected void onError(Throwable cause) {
+    scheduler.release(this, Optional.empty());
+
+    if (!isAsync() && isTransient(cause) && retry(Optional.empty())) return;
+    if (!isAsync()) retryPolicy.recordOutcome(attempts, false);
+
+    Collection<BaseOperation> followers = SingleFlight.land(this);
 
-    lastResponse.push(Optional.empty());
+    lastResponse = Optional.empty();
+    response.completeExceptionally(cause == null ? new NoResponseException() : new NoResponseException(cause));
     callbacks.forEach(cb -> cb.onError());
+
+    followers.forEach(op -> op.onError(cause));
+  }
+
+  /**
+   * Return whether an error is transient, such that the operation may succeed if retried.
+   * The default implementation relies on the operation's {@link RetryPolicy}. Some implementations
+   * are protocol binding-dependent.
+   *
+   * @param cause the cause of an error (or {@code null} if unknown)
+   */
+  protected boolean isTransient(Throwable cause) {
+    return retryPolicy.isTransient(cause);
+  }
+
+  /**
+   * Abandon the operation: no further attempt is made and its followers (if any) are notified of an error.
+   */
+  private void cancel() {
+    abandoned = true;
+
+    scheduler.release(this, Optional.empty());
+    SingleFlight.land(this).forEach(BaseOperation::onError);
+
+    try {
+      abort();
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Could not abort operation: " + this, e);
+    }
+  }
+
+  private void sendAttempt() throws IOException {
+    attempts++;
+    retryPolicy.recordAttempt(attempts);
+
+    sendSingleRequest();
+  }
+
+  /**
+   * Send the operation's request again after some delay, if the operation is idempotent
+   * and the retry policy allows it.
+   *
+   * @param retryAfter delay requested by the server (if any)
+   * @return {@code true} if a new attempt is scheduled
+   */
+  private boolean retry(Optional<Duration> retryAfter) {
+    if (!isIdempotent() || abandoned || attempts == 0) return false;
+
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - firstAttemptTime);
+    Optional<Duration> delay = retryPolicy.getDelay(attempts, elapsed, retryAfter);
+
+    if (delay.isEmpty()) return false;
+
+    LOGGER.fine(String.format("Attempt %d of %s %s failed after %dms, retrying in %dms",
+        attempts, getMethod(), target, elapsed.toMillis(), delay.get().toMillis()));
+
+    scheduler.submit(this, this::sendAttempt, this::onError, delay.get());
+    return true;
   }
 
 }
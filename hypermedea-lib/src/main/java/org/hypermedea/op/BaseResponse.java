@@ -23,12 +23,7 @@ public abstract class BaseResponse implements Response {
 
     builder.append(String.format(", Payload: "));
 
-    if (!getPayload().isEmpty()) {
-      String str = Terms.getOneLineString(getPayload());
-      builder.append(str);
-    } else {
-      builder.append("<none>");
-    }
+    builder.append(Terms.getOneLineString(getPayload()));
 
     return builder.toString();
   }
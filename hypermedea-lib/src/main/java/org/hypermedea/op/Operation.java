@@ -5,6 +5,7 @@ import jason.asSyntax.Literal;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A Web operation is a temporal entity (~time interval) that starts with a request sent
@@ -105,6 +106,22 @@ public interface Operation {
    */
   void sendRequest() throws OperationAlreadyStartedException, IOException;
 
+  /**
+   * <p>
+   *   Start the operation (see {@link #sendRequest()}) without waiting for a response. The returned future
+   *   is completed with the first response sent by the server or exceptionally, if no response is received
+   *   (e.g. with a {@link NoResponseException} or a {@link java.util.concurrent.TimeoutException}).
+   *   Futures of several operations can thus be composed and awaited in bulk
+   *   (e.g. with {@link CompletableFuture#allOf(CompletableFuture[])}).
+   * </p>
+   * <p>
+   *   Cancelling the future aborts the operation.
+   * </p>
+   *
+   * @return a future completed by the server's (first) response
+   */
+  CompletableFuture<Response> sendAsync();
+
   /**
    * Wait synchronously for a response from the server and return it.
    * If the method is called after the server responded, it immediately returns the cached response.
@@ -0,0 +1,385 @@
+package org.hypermedea.op;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ *   Scheduler for the requests of synchronous operations, enforcing politeness towards servers. For each
+ *   authority (host and port) of target URIs, the scheduler limits the number of operations in flight
+ *   and, optionally, the rate at which requests are sent (with a token bucket). Excess operations are
+ *   queued and sent in the order in which they were submitted, as soon as allowed.
+ * </p>
+ * <p>
+ *   If a server asks clients to slow down (e.g. with an HTTP <code>Retry-After</code> header, see
+ *   {@link Response#getRetryAfter()}), no request is sent to its authority until the given delay expires.
+ * </p>
+ * <p>
+ *   The default scheduler, used by {@link BaseOperation}, is configured with the following system properties:
+ * </p>
+ * <ul>
+ *   <li><code>org.hypermedea.op.maxInFlightPerHost</code>: maximum number of operations in flight
+ *   per authority (default: 20)</li>
+ *   <li><code>org.hypermedea.op.ratePerHost</code>: maximum number of requests sent per second
+ *   to an authority (default: unlimited)</li>
+ *   <li><code>org.hypermedea.op.burstPerHost</code>: maximum number of requests sent at once to an authority
+ *   if the rate is limited, i.e. the capacity of the token bucket (default: 1)</li>
+ * </ul>
+ * <p>
+ *   Asynchronous operations (e.g. WATCH operations) and operations on URIs without authority
+ *   (e.g. files) are not scheduled.
+ * </p>
+ */
+public class OperationScheduler {
+
+  /**
+   * Request sent by the scheduler, once allowed.
+   */
+  @FunctionalInterface
+  public interface Request {
+
+    void send() throws IOException;
+
+  }
+
+  public static final String MAX_IN_FLIGHT_PROPERTY = "org.hypermedea.op.maxInFlightPerHost";
+
+  public static final String RATE_PROPERTY = "org.hypermedea.op.ratePerHost";
+
+  public static final String BURST_PROPERTY = "org.hypermedea.op.burstPerHost";
+
+  public static final int DEFAULT_MAX_IN_FLIGHT = 20;
+
+  public static final double UNLIMITED_RATE = -1;
+
+  public static final int DEFAULT_BURST = 1;
+
+  private final static Logger LOGGER = Logger.getLogger(OperationScheduler.class.getCanonicalName());
+
+  private static OperationScheduler defaultScheduler = null;
+
+  private static class Task {
+
+    private final Operation operation;
+
+    private final Request request;
+
+    private final Consumer<IOException> errorHandler;
+
+    private Task(Operation operation, Request request, Consumer<IOException> errorHandler) {
+      this.operation = operation;
+      this.request = request;
+      this.errorHandler = errorHandler;
+    }
+
+  }
+
+  /**
+   * Scheduling state of a single authority.
+   */
+  private class Host {
+
+    private final String authority;
+
+    private final Deque<Task> queue = new LinkedList<>();
+
+    private int inFlight = 0;
+
+    private double tokens = burst;
+
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * Time until which no request can be sent (not paused if in the past).
+     */
+    private long pausedUntil = System.nanoTime();
+
+    private ScheduledFuture<?> wakeUp = null;
+
+    private Host(String authority) {
+      this.authority = authority;
+    }
+
+    private void refill(long now) {
+      if (rate > 0) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1e9);
+        lastRefill = now;
+      }
+    }
+
+    /**
+     * @return the delay (in nanoseconds) before the host's state is back to its initial state (no pause,
+     * full token bucket), after which it can be discarded if nothing is queued or in flight
+     */
+    private long getIdleDelay(long now) {
+      long delay = Math.max(0, pausedUntil - now);
+
+      if (rate > 0) {
+        refill(now);
+        if (tokens < burst) delay = Math.max(delay, (long) Math.ceil((burst - tokens) * 1e9 / rate));
+      }
+
+      return delay;
+    }
+
+    /**
+     * @return the delay (in nanoseconds) before a request can be sent, if a permit is available
+     */
+    private long getDelay(long now) {
+      if (now - pausedUntil < 0) return pausedUntil - now;
+
+      if (rate > 0) {
+        refill(now);
+        if (tokens < 1) return (long) Math.ceil((1 - tokens) * 1e9 / rate);
+      }
+
+      return 0;
+    }
+
+  }
+
+  private final int maxInFlight;
+
+  private final double rate;
+
+  private final int burst;
+
+  private final Map<String, Host> hosts = new HashMap<>();
+
+  /**
+   * Authority of each operation in flight or queued.
+   */
+  private final Map<Operation, Host> active = new HashMap<>();
+
+  private final ScheduledExecutorService executor;
+
+  /**
+   * Return the scheduler shared by all operations. It is created on first call.
+   *
+   * @return the default scheduler, configured with system properties
+   */
+  public static synchronized OperationScheduler getDefault() {
+    if (defaultScheduler == null) {
+      int maxInFlight = Integer.getInteger(MAX_IN_FLIGHT_PROPERTY, DEFAULT_MAX_IN_FLIGHT);
+      String rate = System.getProperty(RATE_PROPERTY);
+      int burst = Integer.getInteger(BURST_PROPERTY, DEFAULT_BURST);
+
+      defaultScheduler = new OperationScheduler(maxInFlight, rate == null ? UNLIMITED_RATE : Double.parseDouble(rate), burst);
+    }
+
+    return defaultScheduler;
+  }
+
+  /**
+   * @param maxInFlight maximum number of operations in flight per authority
+   * @param rate maximum number of requests per second per authority (or {@link #UNLIMITED_RATE})
+   * @param burst maximum number of requests sent at once per authority, if the rate is limited
+   */
+  public OperationScheduler(int maxInFlight, double rate, int burst) {
+    if (maxInFlight < 1 || burst < 1) throw new IllegalArgumentException("Scheduler limits must be positive");
+
+    this.maxInFlight = maxInFlight;
+    this.rate = rate;
+    this.burst = burst;
+
+    this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "hypermedea-scheduler");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * Send the request of the input operation now if allowed (on the caller's thread) or queue it.
+   * In the latter case, errors are passed to the error handler. Once sent, the operation is considered
+   * in flight until {@link #release(Operation, Optional)} is called.
+   *
+   * @param op the operation to schedule
+   * @param request the action of sending the operation's request
+   * @param errorHandler function to call if the request can't be sent after it was queued
+   * @throws IOException if the request was sent immediately and failed
+   */
+  public void submit(Operation op, Request request, Consumer<IOException> errorHandler) throws IOException {
+    Optional<String> authority = getAuthority(op);
+
+    if (authority.isEmpty() || op.isAsync()) {
+      request.send();
+      return;
+    }
+
+    synchronized (this) {
+      Host h = hosts.computeIfAbsent(authority.get(), Host::new);
+      active.put(op, h);
+
+      long now = System.nanoTime();
+
+      if (!h.queue.isEmpty() || h.inFlight >= maxInFlight || h.getDelay(now) > 0) {
+        h.queue.add(new Task(op, request, errorHandler));
+        scheduleWakeUp(h, h.getDelay(now));
+        return;
+      }
+
+      acquire(h);
+    }
+
+    try {
+      request.send();
+    } catch (IOException | RuntimeException e) {
+      release(op, Optional.empty());
+      throw e;
+    }
+  }
+
+  /**
+   * Submit the request of the input operation after some delay (e.g. to retry it).
+   * All errors are passed to the error handler.
+   *
+   * @param op the operation to schedule
+   * @param request the action of sending the operation's request
+   * @param errorHandler function to call if the request can't be sent
+   * @param delay time to wait before submitting the request
+   */
+  public void submit(Operation op, Request request, Consumer<IOException> errorHandler, Duration delay) {
+    executor.schedule(() -> {
+      try {
+        submit(op, request, errorHandler);
+      } catch (IOException | RuntimeException e) {
+        errorHandler.accept(e instanceof IOException ? (IOException) e : new IOException(e));
+      }
+    }, delay.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Mark the input operation as no longer in flight (or remove it from the queue),
+   * letting the next queued operation (if any) be sent.
+   *
+   * @param op an operation previously submitted (calls for other operations have no effect)
+   * @param retryAfter delay requested by the server before sending further requests (if any)
+   */
+  public synchronized void release(Operation op, Optional<Duration> retryAfter) {
+    Host h = active.remove(op);
+
+    if (h == null) return;
+
+    if (!h.queue.removeIf(t -> t.operation == op)) h.inFlight--;
+
+    long now = System.nanoTime();
+
+    if (retryAfter.isPresent() && !retryAfter.get().isNegative()) {
+      long until = now + retryAfter.get().toNanos();
+
+      if (until - h.pausedUntil > 0) {
+        LOGGER.info("Pausing requests to " + h.authority + " for " + retryAfter.get().toMillis() + "ms");
+        h.pausedUntil = until;
+      }
+    }
+
+    dispatch(h);
+  }
+
+  /**
+   * @param authority the authority of some URI
+   * @return the number of operations queued for the given authority
+   */
+  public synchronized int getQueueLength(String authority) {
+    Host h = hosts.get(authority);
+    return h == null ? 0 : h.queue.size();
+  }
+
+  /**
+   * @param authority the authority of some URI
+   * @return the number of operations in flight for the given authority
+   */
+  public synchronized int getInFlight(String authority) {
+    Host h = hosts.get(authority);
+    return h == null ? 0 : h.inFlight;
+  }
+
+  /**
+   * @return the number of authorities for which the scheduler keeps some state
+   */
+  synchronized int getHostCount() {
+    return hosts.size();
+  }
+
+  private synchronized void dispatch(Host h) {
+    long now = System.nanoTime();
+
+    while (!h.queue.isEmpty() && h.inFlight < maxInFlight && h.getDelay(now) <= 0) {
+      Task t = h.queue.poll();
+      acquire(h);
+
+      executor.execute(() -> send(t));
+    }
+
+    if (!h.queue.isEmpty()) {
+      scheduleWakeUp(h, h.getDelay(now));
+    } else if (h.inFlight == 0) {
+      // the host's state is discarded once idle (it is recreated on demand)
+      long idleDelay = h.getIdleDelay(now);
+
+      if (idleDelay > 0) {
+        scheduleWakeUp(h, idleDelay);
+      } else {
+        if (h.wakeUp != null) h.wakeUp.cancel(false);
+        hosts.remove(h.authority);
+      }
+    }
+  }
+
+  private synchronized void wakeUp(Host h) {
+    h.wakeUp = null;
+    if (hosts.get(h.authority) == h) dispatch(h);
+  }
+
+  private void acquire(Host h) {
+    h.inFlight++;
+    if (rate > 0) h.tokens--;
+  }
+
+  private void send(Task t) {
+    try {
+      t.request.send();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Could not send scheduled request: " + t.operation.getTargetURI(), e);
+
+      release(t.operation, Optional.empty());
+      t.errorHandler.accept(e instanceof IOException ? (IOException) e : new IOException(e));
+    }
+  }
+
+  /**
+   * Dispatch queued operations of the host (or discard its state) after the given delay,
+   * unless an earlier wake-up is already scheduled.
+   */
+  private void scheduleWakeUp(Host h, long delay) {
+    // otherwise, waiting for an operation to be released
+    if (delay <= 0) return;
+
+    if (h.wakeUp != null) {
+      if (h.wakeUp.getDelay(TimeUnit.NANOSECONDS) <= delay) return;
+      h.wakeUp.cancel(false);
+    }
+
+    h.wakeUp = executor.schedule(() -> wakeUp(h), delay, TimeUnit.NANOSECONDS);
+  }
+
+  private static Optional<String> getAuthority(Operation op) {
+    try {
+      return Optional.ofNullable(new URI(op.getTargetURI()).getRawAuthority());
+    } catch (URISyntaxException e) {
+      return Optional.empty();
+    }
+  }
+
+}
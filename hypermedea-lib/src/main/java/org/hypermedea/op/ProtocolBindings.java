@@ -1,12 +1,11 @@
 package org.hypermedea.op;
 
 import java.io.File;
-import java.util.Map;
-import java.util.Optional;
-import java.util.ServiceLoader;
+import java.util.*;
 
 /**
- * Factory class to execute generic operations from Web forms.
+ * Factory class to execute generic operations from Web forms. Bindings registered as services
+ * are indexed by URI scheme when the class is loaded (or when {@link #reload()} is called).
  */
 public class ProtocolBindings {
 
@@ -14,6 +13,17 @@ public class ProtocolBindings {
 
   private static final ServiceLoader<ProtocolBinding> loader = ServiceLoader.load(ProtocolBinding.class);
 
+  private static volatile Map<String, ProtocolBinding> bindings = index();
+
+  /**
+   * Reload bindings registered as services and rebuild their index
+   * (e.g. after new bindings were added to the classpath).
+   */
+  public static synchronized void reload() {
+    loader.reload();
+    bindings = index();
+  }
+
   public static Operation bind(String targetURI, Map<String, Object> formFields) throws BindingNotFoundException {
     targetURI = resolve(targetURI);
     ProtocolBinding b = getBinding(targetURI);
@@ -47,11 +57,18 @@ public class ProtocolBindings {
   }
 
   private static Optional<ProtocolBinding> loadFromScheme(String scheme) {
+    return Optional.ofNullable(bindings.get(scheme));
+  }
+
+  private static Map<String, ProtocolBinding> index() {
+    Map<String, ProtocolBinding> m = new HashMap<>();
+
     for (ProtocolBinding b : loader) {
-      if (b.getSupportedSchemes().contains(scheme)) return Optional.of(b);
+      // first binding found for a scheme has priority
+      for (String scheme : b.getSupportedSchemes()) m.putIfAbsent(scheme, b);
     }
 
-    return Optional.empty();
+    return Collections.unmodifiableMap(m);
   }
 
   private ProtocolBindings() {};
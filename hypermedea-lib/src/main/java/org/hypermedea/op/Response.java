@@ -2,7 +2,9 @@ package org.hypermedea.op;
 
 import jason.asSyntax.Literal;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.Optional;
 
 public interface Response {
 
@@ -25,4 +27,14 @@ public interface Response {
    */
   Collection<Literal> getPayload();
 
+  /**
+   * Return the delay the server asks clients to wait before sending further requests,
+   * e.g. if it is overloaded. The default implementation returns an empty value.
+   *
+   * @return a delay or an empty value if the server gave none
+   */
+  default Optional<Duration> getRetryAfter() {
+    return Optional.empty();
+  }
+
 }
@@ -0,0 +1,207 @@
+package org.hypermedea.op;
+
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ *   Policy to retry idempotent operations (see {@link Operation#isIdempotent()}) after a transient
+ *   failure, i.e. a connection failure, a timeout or a server error. Retries are delayed with exponential backoff and
+ *   (equal) jitter: the n-th retry is delayed by a random time between half and the whole of
+ *   <code>initialDelay * 2^(n-1)</code>, bounded by <code>maxDelay</code>. If the server asked clients
+ *   to wait for longer (see {@link Response#getRetryAfter()}), its delay is used instead. No retry is
+ *   made after <code>maxAttempts</code> attempts or if the total time since the first attempt
+ *   would exceed the deadline.
+ * </p>
+ * <p>
+ *   The default policy is configured with the following system properties:
+ * </p>
+ * <ul>
+ *   <li><code>org.hypermedea.op.retry.maxAttempts</code>: maximum number of attempts, including the first
+ *   one (default: 3)</li>
+ *   <li><code>org.hypermedea.op.retry.initialDelay</code>: delay before the first retry, in milliseconds
+ *   (default: 500)</li>
+ *   <li><code>org.hypermedea.op.retry.maxDelay</code>: maximum delay between two attempts, in milliseconds
+ *   (default: 10000)</li>
+ *   <li><code>org.hypermedea.op.retry.deadline</code>: maximum time between the first attempt and the last one,
+ *   in milliseconds (default: 30000)</li>
+ * </ul>
+ * <p>
+ *   The maximum number of attempts can also be set per operation with the {@link #MAX_ATTEMPTS_FIELD} form field
+ *   (e.g. 1 to disable retries).
+ * </p>
+ */
+public class RetryPolicy {
+
+  public static final String MAX_ATTEMPTS_PROPERTY = "org.hypermedea.op.retry.maxAttempts";
+
+  public static final String INITIAL_DELAY_PROPERTY = "org.hypermedea.op.retry.initialDelay";
+
+  public static final String MAX_DELAY_PROPERTY = "org.hypermedea.op.retry.maxDelay";
+
+  public static final String DEADLINE_PROPERTY = "org.hypermedea.op.retry.deadline";
+
+  /**
+   * Form field to set the maximum number of attempts of an operation.
+   */
+  public static final String MAX_ATTEMPTS_FIELD = "urn:hypermedea:maxAttempts";
+
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+  public static final long DEFAULT_INITIAL_DELAY = 500l;
+
+  public static final long DEFAULT_MAX_DELAY = 10000l;
+
+  public static final long DEFAULT_DEADLINE = 30000l;
+
+  private static final AtomicLong attempts = new AtomicLong();
+
+  private static final AtomicLong retries = new AtomicLong();
+
+  private static final AtomicLong recoveries = new AtomicLong();
+
+  private static final AtomicLong exhaustions = new AtomicLong();
+
+  private final int maxAttempts;
+
+  private final Duration initialDelay;
+
+  private final Duration maxDelay;
+
+  private final Duration deadline;
+
+  /**
+   * Return the policy configured with system properties, possibly overridden by the input form.
+   *
+   * @param formFields the form of some operation
+   * @return a retry policy
+   */
+  public static RetryPolicy fromForm(Map<String, Object> formFields) {
+    int maxAttempts = Integer.getInteger(MAX_ATTEMPTS_PROPERTY, DEFAULT_MAX_ATTEMPTS);
+
+    Object field = formFields.get(MAX_ATTEMPTS_FIELD);
+
+    if (field != null) {
+      try {
+        maxAttempts = (int) Double.parseDouble(field.toString());
+      } catch (NumberFormatException e) {
+        throw new InvalidFormException("Invalid maximum number of attempts: " + field);
+      }
+    }
+
+    return new RetryPolicy(
+        maxAttempts,
+        Duration.ofMillis(Long.getLong(INITIAL_DELAY_PROPERTY, DEFAULT_INITIAL_DELAY)),
+        Duration.ofMillis(Long.getLong(MAX_DELAY_PROPERTY, DEFAULT_MAX_DELAY)),
+        Duration.ofMillis(Long.getLong(DEADLINE_PROPERTY, DEFAULT_DEADLINE))
+    );
+  }
+
+  public RetryPolicy(int maxAttempts, Duration initialDelay, Duration maxDelay, Duration deadline) {
+    this.maxAttempts = maxAttempts;
+    this.initialDelay = initialDelay;
+    this.maxDelay = maxDelay;
+    this.deadline = deadline;
+  }
+
+  /**
+   * @return the number of attempts made by all operations (first attempts included)
+   */
+  public static long getAttemptCount() {
+    return attempts.get();
+  }
+
+  /**
+   * @return the number of retries made by all operations
+   */
+  public static long getRetryCount() {
+    return retries.get();
+  }
+
+  /**
+   * @return the number of operations that succeeded after being retried
+   */
+  public static long getRecoveryCount() {
+    return recoveries.get();
+  }
+
+  /**
+   * @return the number of operations that still failed after the last allowed attempt
+   */
+  public static long getExhaustionCount() {
+    return exhaustions.get();
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Return whether the response reports a transient failure, i.e. a server error
+   * or a request to slow down.
+   */
+  public boolean isTransient(Response r) {
+    return r.getStatus().equals(Response.ResponseStatus.SERVER_ERROR) || r.getRetryAfter().isPresent();
+  }
+
+  /**
+   * Return whether the error (or one of its causes) is a transient I/O failure, i.e. a connection that
+   * was refused, reset or closed, or a timeout. Other errors (e.g. a response exceeding size limits)
+   * would occur again if the operation was retried.
+   *
+   * @param cause an error (or {@code null} if unknown)
+   */
+  public boolean isTransient(Throwable cause) {
+    for (Throwable e = cause; e != null; e = e.getCause()) {
+      if (e instanceof SocketException
+          || e instanceof InterruptedIOException
+          || e instanceof ClosedChannelException
+          || e instanceof java.util.concurrent.TimeoutException) return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Compute the delay before the next attempt of an operation.
+   *
+   * @param attempt the number of attempts already made
+   * @param elapsed the time since the first attempt
+   * @param retryAfter the delay requested by the server (if any)
+   * @return a delay or an empty value if no further attempt should be made
+   */
+  public Optional<Duration> getDelay(int attempt, Duration elapsed, Optional<Duration> retryAfter) {
+    if (attempt >= maxAttempts) return Optional.empty();
+
+    long backoff = initialDelay.toMillis() << Math.min(attempt - 1, 30);
+    if (backoff <= 0 || backoff > maxDelay.toMillis()) backoff = maxDelay.toMillis();
+
+    long jittered = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    Duration delay = Duration.ofMillis(jittered);
+
+    if (retryAfter.isPresent() && retryAfter.get().compareTo(delay) > 0) delay = retryAfter.get();
+
+    if (elapsed.plus(delay).compareTo(deadline) > 0) return Optional.empty();
+
+    return Optional.of(delay);
+  }
+
+  void recordAttempt(int attempt) {
+    attempts.incrementAndGet();
+    if (attempt > 1) retries.incrementAndGet();
+  }
+
+  void recordOutcome(int attempt, boolean success) {
+    if (attempt > 1) {
+      if (success) recoveries.incrementAndGet();
+      else exhaustions.incrementAndGet();
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+package org.hypermedea.op;
+
+import java.util.*;
+
+/**
+ * <p>
+ *   Registry of safe operations in flight, to coalesce identical operations (same target, same form
+ *   and same payload) started concurrently. The first operation (the leader) sends a request, the other
+ *   ones (followers) send none and receive the leader's response instead. As responses memoize their
+ *   payload, the representation is also deserialized only once.
+ * </p>
+ * <p>
+ *   Operations started after the leader received its response are not coalesced, so that they observe
+ *   the latest state of the resource. Coalescing can be disabled by setting the system property
+ *   <code>org.hypermedea.op.singleFlight</code> to <code>false</code>.
+ * </p>
+ */
+class SingleFlight {
+
+  public static final String SINGLE_FLIGHT_PROPERTY = "org.hypermedea.op.singleFlight";
+
+  private static class Key {
+
+    private final String target;
+
+    private final Map<String, Object> form;
+
+    private final Collection<?> payload;
+
+    private Key(Operation op) {
+      target = op.getTargetURI();
+      form = new HashMap<>(op.getForm());
+      payload = new HashSet<>(op.getPayload());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+
+      Key other = (Key) o;
+      return target.equals(other.target) && form.equals(other.form) && payload.equals(other.payload);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(target, form);
+    }
+
+  }
+
+  private static class Flight {
+
+    private final BaseOperation leader;
+
+    private final Collection<BaseOperation> followers = new ArrayList<>();
+
+    private Flight(BaseOperation leader) {
+      this.leader = leader;
+    }
+
+  }
+
+  private static final boolean enabled = !"false".equalsIgnoreCase(System.getProperty(SINGLE_FLIGHT_PROPERTY));
+
+  private static final Map<Key, Flight> flights = new HashMap<>();
+
+  /**
+   * Key of the flight led by each operation, to find it back when the leader completes.
+   */
+  private static final Map<BaseOperation, Key> leaders = new HashMap<>();
+
+  /**
+   * Join an identical operation in flight if there is one or register the input operation as leader.
+   *
+   * @param op a safe, synchronous operation about to send its request
+   * @return {@code true} if the operation joined a flight (it must not send any request)
+   */
+  static synchronized boolean join(BaseOperation op) {
+    if (!enabled) return false;
+
+    Key k = new Key(op);
+    Flight f = flights.get(k);
+
+    if (f == null) {
+      flights.put(k, new Flight(op));
+      leaders.put(op, k);
+
+      return false;
+    } else {
+      f.followers.add(op);
+      return true;
+    }
+  }
+
+  /**
+   * End the flight of the input operation (if it is a leader).
+   *
+   * @param op an operation that received a response or an error
+   * @return the followers of the operation (to which the response must be passed)
+   */
+  static synchronized Collection<BaseOperation> land(BaseOperation op) {
+    Key k = leaders.remove(op);
+
+    if (k == null) return Collections.emptyList();
+
+    Flight f = flights.remove(k);
+    return f.followers;
+  }
+
+  private SingleFlight() {}
+
+}
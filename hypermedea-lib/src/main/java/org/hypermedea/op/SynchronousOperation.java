@@ -2,9 +2,14 @@ package org.hypermedea.op;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public abstract class SynchronousOperation extends BaseOperation {
 
+    private final static Logger LOGGER = Logger.getLogger(SynchronousOperation.class.getCanonicalName());
+
     public SynchronousOperation(String targetURI, Map<String, Object> formFields) {
         super(targetURI, formFields);
     }
@@ -19,6 +24,26 @@ public abstract class SynchronousOperation extends BaseOperation {
         super.sendRequest();
     }
 
+    /**
+     * Calls {@link BaseOperation#end()} once the response is received.
+     *
+     * @return a future completed by the server's response
+     */
+    @Override
+    public CompletableFuture<Response> sendAsync() {
+        CompletableFuture<Response> f = super.sendAsync();
+
+        f.whenComplete((r, e) -> {
+            try {
+                end();
+            } catch (IOException e2) {
+                LOGGER.log(Level.WARNING, "Could not end operation: " + this, e2);
+            }
+        });
+
+        return f;
+    }
+
     /**
      * Calls {@link BaseOperation#end()} before returning the response.
      * Synchronous operations can only have one response.
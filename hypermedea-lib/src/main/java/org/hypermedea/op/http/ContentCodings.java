@@ -0,0 +1,293 @@
+package org.hypermedea.op.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>
+ *   Content codings supported by the HTTP binding (see
+ *   <a href="https://www.rfc-editor.org/rfc/rfc9110#section-8.4.1">RFC 9110, Section 8.4.1</a>).
+ *   Response bodies are decoded while they are read, without being inflated in memory first.
+ * </p>
+ * <p>
+ *   <code>gzip</code> and <code>deflate</code> are always supported. <code>br</code> is supported
+ *   if <a href="https://github.com/google/brotli">Brotli</a>'s Java decoder (<code>org.brotli:dec</code>)
+ *   is on the classpath, <code>zstd</code> if <a href="https://github.com/luben/zstd-jni">zstd-jni</a> is.
+ *   Only <code>gzip</code> and <code>deflate</code> can be used to encode request bodies.
+ * </p>
+ */
+class ContentCodings {
+
+  public static final String GZIP = "gzip";
+
+  public static final String DEFLATE = "deflate";
+
+  public static final String BROTLI = "br";
+
+  public static final String ZSTD = "zstd";
+
+  public static final String IDENTITY = "identity";
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private static final Constructor<? extends InputStream> BROTLI_DECODER = findDecoder("org.brotli.dec.BrotliInputStream");
+
+  private static final Constructor<? extends InputStream> ZSTD_DECODER = findDecoder("com.github.luben.zstd.ZstdInputStream");
+
+  private static final String ACCEPT_ENCODING = getAcceptEncoding(BROTLI_DECODER != null, ZSTD_DECODER != null);
+
+  /**
+   * Stream over raw (encoded) bytes, keeping track of the time spent waiting for them.
+   */
+  private static class TimedInputStream extends FilterInputStream {
+
+    private long readTime = 0;
+
+    private TimedInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      long t = System.nanoTime();
+
+      try {
+        return super.read();
+      } finally {
+        readTime += System.nanoTime() - t;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      long t = System.nanoTime();
+
+      try {
+        return super.read(b, off, len);
+      } finally {
+        readTime += System.nanoTime() - t;
+      }
+    }
+
+  }
+
+  /**
+   * Stream over decoded bytes, recording statistics and enforcing a maximum decoded size.
+   */
+  private static class DecodedInputStream extends FilterInputStream {
+
+    private final TimedInputStream raw;
+
+    private final boolean encoded;
+
+    private final long maxSize;
+
+    private final HttpStatistics stats;
+
+    private long size = 0;
+
+    private DecodedInputStream(InputStream in, TimedInputStream raw, boolean encoded, long maxSize, HttpStatistics stats) {
+      super(in);
+
+      this.raw = raw;
+      this.encoded = encoded;
+      this.maxSize = maxSize;
+      this.stats = stats;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int n = read(b, 0, 1);
+
+      return n < 0 ? n : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      long t = System.nanoTime();
+      long readTime = raw.readTime;
+
+      int n = super.read(b, off, len);
+
+      // time spent in decoders, excluding the time spent waiting for bytes from the network
+      long decodingTime = encoded ? (System.nanoTime() - t) - (raw.readTime - readTime) : 0;
+      stats.recordDecoded(Math.max(n, 0), Math.max(decodingTime, 0));
+
+      if (n > 0) size += n;
+      if (maxSize >= 0 && size > maxSize) throw new IOException("Decoded body exceeds maximum size (" + maxSize + " bytes)");
+
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      byte[] b = new byte[(int) Math.min(n, BUFFER_SIZE)];
+      int skipped = read(b, 0, b.length);
+
+      return Math.max(skipped, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+  }
+
+  /**
+   * @return the value of the <code>Accept-Encoding</code> header listing all supported codings
+   */
+  static String getAcceptEncoding() {
+    return ACCEPT_ENCODING;
+  }
+
+  /**
+   * Return whether the input coding can be used to encode request bodies.
+   */
+  static boolean isSupportedForEncoding(String coding) {
+    return coding.equalsIgnoreCase(GZIP) || coding.equalsIgnoreCase(DEFLATE);
+  }
+
+  /**
+   * Wrap a response body into decoders, as per the response's <code>Content-Encoding</code> header.
+   *
+   * @param body the response body, as received from the network
+   * @param contentEncoding the value of the <code>Content-Encoding</code> header (or {@code null})
+   * @param maxSize maximum size of the decoded body (negative if unlimited)
+   * @param stats statistics in which the decoded size and the decoding time are recorded
+   * @return a stream over the decoded body
+   * @throws IOException if some coding isn't supported or the body can't be decoded
+   */
+  static InputStream decode(InputStream body, String contentEncoding, long maxSize, HttpStatistics stats) throws IOException {
+    TimedInputStream raw = new TimedInputStream(body);
+    InputStream in = raw;
+
+    List<String> codings = parseCodings(contentEncoding);
+
+    // codings are listed in the order in which they were applied
+    Collections.reverse(codings);
+    for (String c : codings) in = getDecoder(c, in);
+
+    return new DecodedInputStream(in, raw, !codings.isEmpty(), maxSize, stats);
+  }
+
+  /**
+   * Wrap an output stream into an encoder.
+   *
+   * @param out the stream to which encoded bytes are written
+   * @param coding either <code>gzip</code> or <code>deflate</code>
+   * @return a stream that must be closed for all encoded bytes to be written
+   */
+  static OutputStream encode(OutputStream out, String coding) throws IOException {
+    if (coding.equalsIgnoreCase(GZIP)) return new GZIPOutputStream(out, BUFFER_SIZE);
+    else if (coding.equalsIgnoreCase(DEFLATE)) return new DeflaterOutputStream(out);
+    else throw new IOException("Unsupported content coding for requests: " + coding);
+  }
+
+  private static List<String> parseCodings(String contentEncoding) {
+    List<String> codings = new ArrayList<>();
+
+    if (contentEncoding != null) {
+      for (String c : contentEncoding.split(",")) {
+        String coding = c.trim().toLowerCase();
+        if (!coding.isEmpty() && !coding.equals(IDENTITY)) codings.add(coding);
+      }
+    }
+
+    return codings;
+  }
+
+  private static InputStream getDecoder(String coding, InputStream in) throws IOException {
+    switch (coding) {
+      case GZIP:
+      case "x-gzip":
+        return new GZIPInputStream(in, BUFFER_SIZE);
+
+      case DEFLATE:
+        return getDeflateDecoder(in);
+
+      case BROTLI:
+        if (BROTLI_DECODER != null) return newDecoder(BROTLI_DECODER, in);
+        break;
+
+      case ZSTD:
+        if (ZSTD_DECODER != null) return newDecoder(ZSTD_DECODER, in);
+        break;
+    }
+
+    throw new IOException("Unsupported content coding: " + coding);
+  }
+
+  /**
+   * The <code>deflate</code> coding is a zlib stream but some servers send raw deflate data instead.
+   * The zlib header is checked to select the decoder.
+   */
+  private static InputStream getDeflateDecoder(InputStream in) throws IOException {
+    PushbackInputStream pushback = new PushbackInputStream(in, 2);
+
+    byte[] header = pushback.readNBytes(2);
+    pushback.unread(header);
+
+    boolean zlib = header.length == 2
+        && (header[0] & 0x0f) == 8
+        && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+
+    return new InflaterInputStream(pushback, new Inflater(!zlib), BUFFER_SIZE) {
+      @Override
+      public void close() throws IOException {
+        // the stream doesn't release an inflater it didn't create
+        try {
+          super.close();
+        } finally {
+          inf.end();
+        }
+      }
+    };
+  }
+
+  private static InputStream newDecoder(Constructor<? extends InputStream> decoder, InputStream in) throws IOException {
+    try {
+      return decoder.newInstance(in);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+      else throw new IOException(e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static Constructor<? extends InputStream> findDecoder(String className) {
+    try {
+      Class<? extends InputStream> c = Class.forName(className).asSubclass(InputStream.class);
+      return c.getConstructor(InputStream.class);
+    } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+      return null;
+    }
+  }
+
+  private static String getAcceptEncoding(boolean brotli, boolean zstd) {
+    StringBuilder builder = new StringBuilder(GZIP + ", " + DEFLATE);
+
+    if (brotli) builder.append(", ").append(BROTLI);
+    if (zstd) builder.append(", ").append(ZSTD);
+
+    return builder.toString();
+  }
+
+  private ContentCodings() {}
+
+}
@@ -0,0 +1,167 @@
+package org.hypermedea.op.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incremental parser for <code>text/event-stream</code> bodies, as specified in the
+ * <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html#event-stream-interpretation">HTML
+ * Living Standard</a>. Bytes can be fed as they are received: each event is passed to the listener as soon as
+ * the blank line that terminates it is parsed.
+ */
+class EventStreamParser {
+
+  interface Listener {
+
+    /**
+     * Called for every dispatched event.
+     *
+     * @param id the last event ID, as set by this event or previous ones (may be empty)
+     * @param type the event type (<code>message</code> if not set)
+     * @param data the event data
+     */
+    void onEvent(String id, String type, String data) throws IOException;
+
+  }
+
+  public static final String DEFAULT_EVENT_TYPE = "message";
+
+  private static final byte CR = '\r';
+
+  private static final byte LF = '\n';
+
+  /**
+   * Maximum size (in bytes) of a line, besides the data it holds (field name, colon and space).
+   */
+  private static final int MAX_LINE_OVERHEAD = 16;
+
+  private final Listener listener;
+
+  /**
+   * Maximum size (in characters) of the data of an event (negative if unlimited).
+   */
+  private final long maxDataSize;
+
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+  /**
+   * Maximum size (in bytes) of a line (negative if unlimited), such that a stream without line break
+   * can't be buffered indefinitely. A UTF-8 character takes up to 3 bytes per UTF-16 character.
+   */
+  private final long maxLineSize;
+
+  private boolean lastWasCR = false;
+
+  private boolean firstLine = true;
+
+  private final StringBuilder data = new StringBuilder();
+
+  private String eventType = "";
+
+  private String lastEventId = "";
+
+  private long retry = -1;
+
+  EventStreamParser(Listener listener, long maxDataSize) {
+    this.listener = listener;
+    this.maxDataSize = maxDataSize;
+    this.maxLineSize = maxDataSize < 0 ? -1 : 3 * maxDataSize + MAX_LINE_OVERHEAD;
+  }
+
+  /**
+   * @return the ID of the last event received (possibly empty)
+   */
+  String getLastEventId() {
+    return lastEventId;
+  }
+
+  /**
+   * @return the reconnection time (in milliseconds) sent by the server or -1 if none was sent
+   */
+  long getRetry() {
+    return retry;
+  }
+
+  void feed(ByteBuffer src) throws IOException {
+    while (src.hasRemaining()) {
+      byte b = src.get();
+
+      if (b == LF && lastWasCR) {
+        lastWasCR = false;
+      } else if (b == CR || b == LF) {
+        lastWasCR = b == CR;
+        processLine(line.toString(StandardCharsets.UTF_8));
+        line.reset();
+      } else {
+        lastWasCR = false;
+
+        if (maxLineSize >= 0 && line.size() >= maxLineSize)
+          throw new IOException("Event stream line exceeds maximum size (" + maxLineSize + " bytes)");
+
+        line.write(b);
+      }
+    }
+  }
+
+  private void processLine(String l) throws IOException {
+    if (firstLine && l.startsWith("\uFEFF")) l = l.substring(1);
+    firstLine = false;
+
+    if (l.isEmpty()) {
+      dispatch();
+    } else if (!l.startsWith(":")) {
+      int i = l.indexOf(':');
+
+      String field = i < 0 ? l : l.substring(0, i);
+      String value = i < 0 ? "" : l.substring(i + 1);
+      if (value.startsWith(" ")) value = value.substring(1);
+
+      processField(field, value);
+    }
+  }
+
+  private void processField(String field, String value) throws IOException {
+    switch (field) {
+      case "event":
+        eventType = value;
+        break;
+
+      case "data":
+        if (maxDataSize >= 0 && data.length() + value.length() > maxDataSize)
+          throw new IOException("Event data exceeds maximum size (" + maxDataSize + " bytes)");
+
+        data.append(value).append('\n');
+        break;
+
+      case "id":
+        if (value.indexOf('\0') < 0) lastEventId = value;
+        break;
+
+      case "retry":
+        if (!value.isEmpty() && value.chars().allMatch(c -> c >= '0' && c <= '9')) {
+          try {
+            retry = Long.parseLong(value);
+          } catch (NumberFormatException e) {
+            // ignore out of range values
+          }
+        }
+        break;
+
+      default:
+        // ignore unknown fields
+    }
+  }
+
+  private void dispatch() throws IOException {
+    if (data.length() > 0) {
+      String type = eventType.isEmpty() ? DEFAULT_EVENT_TYPE : eventType;
+      listener.onEvent(lastEventId, type, data.substring(0, data.length() - 1));
+    }
+
+    data.setLength(0);
+    eventType = "";
+  }
+
+}
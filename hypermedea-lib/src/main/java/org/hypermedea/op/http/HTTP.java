@@ -17,6 +17,36 @@ public class HTTP {
 
     public static final String Cookie = NS + "cookie";
 
+    /**
+     * Form field to select the HTTP version used in an operation: {@link #HTTP_1_1} (default)
+     * or {@link #HTTP_2}. This field is not mapped to any header.
+     */
+    public static final String Version = NS + "version";
+
+    public static final String HTTP_1_1 = "1.1";
+
+    public static final String HTTP_2 = "2";
+
+    /**
+     * Form field to set the maximum size (in bytes) of a response body. If the server sends a larger body,
+     * the operation is aborted. This field overrides the binding-wide limit (see {@link HttpBinding}).
+     */
+    public static final String MaxBodySize = NS + "maxBodySize";
+
+    /**
+     * Form field to compress the request payload with the given content coding (<code>gzip</code>
+     * or <code>deflate</code>). The server must support the coding. Response bodies are always
+     * decompressed, whatever the value of this field.
+     */
+    public static final String ContentEncoding = NS + "contentEncoding";
+
+    /**
+     * Form field to set the Content-Type of the data of events received during a WATCH operation
+     * (default: <code>text/plain</code>). Events are sent as a <code>text/event-stream</code> body,
+     * in which event data has no Content-Type of its own.
+     */
+    public static final String EventContentType = NS + "eventContentType";
+
     public static String getHeader(String term) {
         switch (term) {
             case Accept: return HttpHeaders.ACCEPT;
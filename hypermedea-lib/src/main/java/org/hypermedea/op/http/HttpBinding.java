@@ -1,17 +1,122 @@
 package org.hypermedea.op.http;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
 import org.hypermedea.op.BaseProtocolBinding;
+import org.hypermedea.op.InvalidFormException;
 import org.hypermedea.op.Operation;
 
+import java.io.File;
+import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
- * Default HTTP binding.
+ * <p>
+ *   Default HTTP binding.
+ * </p>
+ * <p>
+ *   All HTTP operations share a single, connection-pooled client, started on first use and
+ *   closed when the JVM exits (or when {@link #shutdown()} is called). Connections (and TLS sessions)
+ *   are thus reused across operations targeting the same host. The pool can be configured
+ *   with the following system properties:
+ * </p>
+ * <ul>
+ *   <li><code>org.hypermedea.http.maxConnections</code>: maximum number of open connections (default: 200)</li>
+ *   <li><code>org.hypermedea.http.maxConnectionsPerRoute</code>: maximum number of open connections
+ *   to the same host (default: 20)</li>
+ *   <li><code>org.hypermedea.http.keepAlive</code>: time (in seconds) a connection is kept alive if
+ *   the server gives no <code>Keep-Alive</code> header (default: 30)</li>
+ *   <li><code>org.hypermedea.http.idleTimeout</code>: time (in seconds) after which idle connections
+ *   are evicted from the pool (default: 30)</li>
+ *   <li><code>org.hypermedea.http.version</code>: default HTTP version, either <code>1.1</code>
+ *   or <code>2</code> (default: <code>1.1</code>)</li>
+ *   <li><code>org.hypermedea.http.maxBodySize</code>: maximum size (in bytes) of a response body,
+ *   larger responses being aborted (default: unlimited)</li>
+ * </ul>
+ * <p>
+ *   Response bodies are not buffered: they are passed to representation handlers while they are being
+ *   received. Compressed responses are requested and decompressed on the fly (see {@link ContentCodings}
+ *   for supported codings). Request payloads may be compressed as well, with the {@link HTTP#ContentEncoding}
+ *   form field. The number of bytes transferred and the time spent decompressing them are recorded
+ *   in {@link #getStatistics()}.
+ * </p>
+ * <p>
+ *   Responses to GET operations may also be cached (see {@link HttpCache}). The cache is configured
+ *   with the following system properties:
+ * </p>
+ * <ul>
+ *   <li><code>org.hypermedea.http.cache</code>: whether the cache is enabled (default: <code>false</code>)</li>
+ *   <li><code>org.hypermedea.http.cache.maxSize</code>: maximum size (in bytes) of responses held in
+ *   memory (default: 64MB)</li>
+ *   <li><code>org.hypermedea.http.cache.maxEntrySize</code>: maximum size (in bytes) of a cached
+ *   response (default: 8MB)</li>
+ *   <li><code>org.hypermedea.http.cache.dir</code>: directory in which responses are also stored
+ *   (default: none)</li>
+ * </ul>
+ * <p>
+ *   In HTTP/2 mode, operations are executed by a second shared client that keeps a single connection
+ *   per host and multiplexes concurrent requests as HTTP/2 streams over that connection. The protocol
+ *   is negotiated via ALPN for <code>https</code> URIs and assumed with prior knowledge (h2c) for
+ *   <code>http</code> URIs. The mode can be selected per operation with the {@link HTTP#Version}
+ *   form field.
+ * </p>
+ * <p>
+ *   WATCH operations are implemented with Server-Sent Events (see {@link HttpWatchOperation}).
+ * </p>
  */
 public class HttpBinding extends BaseProtocolBinding {
 
+  public static final String MAX_CONNECTIONS_PROPERTY = "org.hypermedea.http.maxConnections";
+
+  public static final String MAX_CONNECTIONS_PER_ROUTE_PROPERTY = "org.hypermedea.http.maxConnectionsPerRoute";
+
+  public static final String KEEP_ALIVE_PROPERTY = "org.hypermedea.http.keepAlive";
+
+  public static final String IDLE_TIMEOUT_PROPERTY = "org.hypermedea.http.idleTimeout";
+
+  public static final String VERSION_PROPERTY = "org.hypermedea.http.version";
+
+  public static final String MAX_BODY_SIZE_PROPERTY = "org.hypermedea.http.maxBodySize";
+
+  public static final String CACHE_PROPERTY = "org.hypermedea.http.cache";
+
+  public static final String CACHE_MAX_SIZE_PROPERTY = "org.hypermedea.http.cache.maxSize";
+
+  public static final String CACHE_MAX_ENTRY_SIZE_PROPERTY = "org.hypermedea.http.cache.maxEntrySize";
+
+  public static final String CACHE_DIRECTORY_PROPERTY = "org.hypermedea.http.cache.dir";
+
+  public static final int DEFAULT_MAX_CONNECTIONS = 200;
+
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+  public static final long DEFAULT_KEEP_ALIVE = 30l;
+
+  public static final long DEFAULT_IDLE_TIMEOUT = 30l;
+
+  /**
+   * Default value for {@link #MAX_BODY_SIZE_PROPERTY} (no limit).
+   */
+  public static final long UNLIMITED_BODY_SIZE = -1l;
+
   private final static String HTTP_PROTOCOL = "HTTP";
 
   private final static Collection<String> SUPPORTED_SCHEMES = new HashSet<>();
@@ -21,6 +126,169 @@ public class HttpBinding extends BaseProtocolBinding {
     SUPPORTED_SCHEMES.add("https");
   }
 
+  private final static HttpStatistics statistics = new HttpStatistics();
+
+  /**
+   * Client shared by all HTTP operations (lazily created).
+   */
+  private static CloseableHttpAsyncClient client = null;
+
+  /**
+   * HTTP/2 client shared by all HTTP operations in HTTP/2 mode (lazily created).
+   */
+  private static CloseableHttpAsyncClient h2Client = null;
+
+  /**
+   * Response cache shared by all HTTP operations (lazily created, if enabled).
+   */
+  private static HttpCache cache = null;
+
+  private static TlsStrategy tlsStrategy = null;
+
+  /**
+   * Threads on which responses are passed to operations, so that response callbacks
+   * can read response bodies without blocking I/O dispatch threads.
+   */
+  private static ExecutorService responseExecutor = null;
+
+  /**
+   * Thread on which delayed tasks (e.g. reconnections) are executed.
+   */
+  private static ScheduledExecutorService scheduledExecutor = null;
+
+  private static Thread shutdownHook = null;
+
+  /**
+   * Return the client shared by all HTTP operations. The client is created and started on first call.
+   *
+   * @return a started, connection-pooled HTTP client
+   */
+  public static synchronized CloseableHttpAsyncClient getClient() {
+    if (client == null) {
+      client = createClient();
+      client.start();
+
+      registerShutdownHook();
+    }
+
+    return client;
+  }
+
+  /**
+   * Return the client shared by all HTTP operations in HTTP/2 mode.
+   * The client is created and started on first call.
+   *
+   * @return a started HTTP/2 client, multiplexing requests to the same host over a single connection
+   */
+  public static synchronized CloseableHttpAsyncClient getHttp2Client() {
+    if (h2Client == null) {
+      h2Client = createHttp2Client();
+      h2Client.start();
+
+      registerShutdownHook();
+    }
+
+    return h2Client;
+  }
+
+  /**
+   * Return the shared client corresponding to the HTTP version selected in the input form
+   * (see {@link HTTP#Version}) or, if the form doesn't include any version, to the default version.
+   *
+   * @param formFields the form of some HTTP operation
+   * @return either {@link #getClient()} or {@link #getHttp2Client()}
+   */
+  public static CloseableHttpAsyncClient getClient(Map<String, Object> formFields) {
+    Object version = formFields.get(HTTP.Version);
+    if (version == null) version = System.getProperty(VERSION_PROPERTY, HTTP.HTTP_1_1);
+
+    if (version.equals(HTTP.HTTP_2)) return getHttp2Client();
+    else if (version.equals(HTTP.HTTP_1_1)) return getClient();
+    else throw new InvalidFormException("Unsupported HTTP version: " + version);
+  }
+
+  /**
+   * @return counters on the bodies transferred by all HTTP operations
+   */
+  public static HttpStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Return the maximum size of a response body allowed by the input form (see {@link HTTP#MaxBodySize})
+   * or, if the form doesn't include any limit, by the binding.
+   *
+   * @param formFields the form of some HTTP operation
+   * @return a size in bytes or {@link #UNLIMITED_BODY_SIZE}
+   */
+  public static long getMaxBodySize(Map<String, Object> formFields) {
+    Object max = formFields.get(HTTP.MaxBodySize);
+    if (max == null) return Long.getLong(MAX_BODY_SIZE_PROPERTY, UNLIMITED_BODY_SIZE);
+
+    try {
+      return new BigDecimal(max.toString()).longValueExact();
+    } catch (NumberFormatException | ArithmeticException e) {
+      throw new InvalidFormException("Invalid maximum body size: " + max);
+    }
+  }
+
+  /**
+   * Return the response cache shared by all HTTP operations, if enabled.
+   *
+   * @return the HTTP cache or an empty value if caching is disabled
+   */
+  public static synchronized Optional<HttpCache> getCache() {
+    if (cache == null && Boolean.getBoolean(CACHE_PROPERTY)) {
+      long maxSize = Long.getLong(CACHE_MAX_SIZE_PROPERTY, HttpCache.DEFAULT_MAX_SIZE);
+      long maxEntrySize = Long.getLong(CACHE_MAX_ENTRY_SIZE_PROPERTY, HttpCache.DEFAULT_MAX_ENTRY_SIZE);
+      String dir = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+
+      cache = new HttpCache(maxSize, maxEntrySize, dir == null ? null : new File(dir));
+    }
+
+    return Optional.ofNullable(cache);
+  }
+
+  /**
+   * Close the shared client and all pooled connections. Pending operations may fail.
+   * A new client is created if an operation is bound afterwards.
+   */
+  public static synchronized void shutdown() {
+    if (client != null) {
+      client.close(CloseMode.GRACEFUL);
+      client = null;
+    }
+
+    if (h2Client != null) {
+      h2Client.close(CloseMode.GRACEFUL);
+      h2Client = null;
+    }
+  }
+
+  static synchronized Executor getResponseExecutor() {
+    if (responseExecutor == null) {
+      responseExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "hypermedea-http-response");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+
+    return responseExecutor;
+  }
+
+  static synchronized ScheduledExecutorService getScheduledExecutor() {
+    if (scheduledExecutor == null) {
+      scheduledExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hypermedea-http-scheduler");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+
+    return scheduledExecutor;
+  }
+
   @Override
   public String getProtocol() {
     return HTTP_PROTOCOL;
@@ -38,7 +306,7 @@ public class HttpBinding extends BaseProtocolBinding {
 
   @Override
   protected Operation bindWatch(String targetURI, Map<String, Object> formFields) {
-    return new HttpOperation(targetURI, formFields);
+    return new HttpWatchOperation(targetURI, formFields);
   }
 
   @Override
@@ -61,4 +329,58 @@ public class HttpBinding extends BaseProtocolBinding {
     return new HttpOperation(targetURI, formFields);
   }
 
+  private static synchronized void registerShutdownHook() {
+    if (shutdownHook == null) {
+      shutdownHook = new Thread(HttpBinding::shutdown);
+      Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+  }
+
+  private static CloseableHttpAsyncClient createClient() {
+    TimeValue keepAlive = TimeValue.ofSeconds(Long.getLong(KEEP_ALIVE_PROPERTY, DEFAULT_KEEP_ALIVE));
+    TimeValue idleTimeout = TimeValue.ofSeconds(Long.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT));
+
+    PoolingAsyncClientConnectionManager pool = PoolingAsyncClientConnectionManagerBuilder.create()
+            .setTlsStrategy(getTlsStrategy())
+            .setMaxConnTotal(Integer.getInteger(MAX_CONNECTIONS_PROPERTY, DEFAULT_MAX_CONNECTIONS))
+            .setMaxConnPerRoute(Integer.getInteger(MAX_CONNECTIONS_PER_ROUTE_PROPERTY, DEFAULT_MAX_CONNECTIONS_PER_ROUTE))
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setValidateAfterInactivity(TimeValue.ofSeconds(1))
+                    .build())
+            .build();
+
+    return HttpAsyncClients.custom()
+            .setConnectionManager(pool)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                    .setConnectionKeepAlive(keepAlive)
+                    .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(idleTimeout)
+            .build();
+  }
+
+  private static CloseableHttpAsyncClient createHttp2Client() {
+    TimeValue idleTimeout = TimeValue.ofSeconds(Long.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT));
+
+    // the HTTP/2 client keeps one connection per host (ALPN over TLS, prior knowledge otherwise)
+    return H2AsyncClientBuilder.create()
+            .setTlsStrategy(getTlsStrategy())
+            .setH2Config(H2Config.custom()
+                    .setPushEnabled(false)
+                    .build())
+            .evictIdleConnections(idleTimeout)
+            .build();
+  }
+
+  private static synchronized TlsStrategy getTlsStrategy() {
+    // a single SSL context, so that TLS sessions are cached and resumed across connections
+    if (tlsStrategy == null) {
+      tlsStrategy = ClientTlsStrategyBuilder.create()
+              .setSslContext(SSLContexts.createSystemDefault())
+              .build();
+    }
+
+    return tlsStrategy;
+  }
+
 }
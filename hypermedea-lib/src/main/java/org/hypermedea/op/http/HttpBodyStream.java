@@ -0,0 +1,108 @@
+package org.hypermedea.op.http;
+
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream over the body of an HTTP response, filled by the I/O dispatch thread while the body
+ * is being received. Reading blocks until more bytes arrive. The stream propagates flow control
+ * to the connection: the server is asked to pause if the buffer isn't drained fast enough.
+ * If the exchange fails before the body was fully received, reading throws the cause of the failure.
+ * If the stream is closed before the body was fully received, the rest of the body is discarded as it
+ * arrives (without flow control), such that the connection can be re-used once the exchange is complete.
+ */
+class HttpBodyStream extends InputStream {
+
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private final SharedInputBuffer buffer;
+
+  private volatile IOException error = null;
+
+  private volatile boolean closed = false;
+
+  /**
+   * Channel through which the connection is asked for more data (set once the exchange has started).
+   */
+  private volatile CapacityChannel capacityChannel = null;
+
+  HttpBodyStream() {
+    this(DEFAULT_BUFFER_SIZE);
+  }
+
+  HttpBodyStream(int bufferSize) {
+    buffer = new SharedInputBuffer(bufferSize);
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = buffer.read();
+    if (b < 0) checkError();
+
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) return 0;
+
+    int n = buffer.read(b, off, len);
+    if (n < 0) checkError();
+
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return closed ? 0 : buffer.length();
+  }
+
+  /**
+   * Stop reading the body. Subsequent reads return end of stream and the rest of the body is drained.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    buffer.abort();
+
+    CapacityChannel ch = capacityChannel;
+    if (ch != null) ch.update(Integer.MAX_VALUE);
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+    this.capacityChannel = capacityChannel;
+
+    if (closed) capacityChannel.update(Integer.MAX_VALUE);
+    else buffer.updateCapacity(capacityChannel);
+  }
+
+  void fill(ByteBuffer src) {
+    if (closed) src.position(src.limit());
+    else buffer.fill(src);
+  }
+
+  void end() {
+    buffer.markEndStream();
+  }
+
+  /**
+   * Abort the stream. Only the first cause of failure is reported to readers.
+   */
+  synchronized void fail(IOException cause) {
+    if (error == null) error = cause;
+    buffer.abort();
+  }
+
+  private void checkError() throws IOException {
+    if (error != null) throw error;
+  }
+
+}
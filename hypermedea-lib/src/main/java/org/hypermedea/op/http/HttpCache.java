@@ -0,0 +1,332 @@
+package org.hypermedea.op.http;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ *   Private HTTP cache for GET operations, following the caching rules of
+ *   <a href="https://www.rfc-editor.org/rfc/rfc9111">RFC 9111</a>: responses are stored if the server
+ *   allows it (<code>Cache-Control</code>) and reused as long as they are fresh (<code>Cache-Control</code>,
+ *   <code>Expires</code> or heuristic freshness based on <code>Last-Modified</code>). Stale responses
+ *   are revalidated with a conditional request (<code>If-None-Match</code>/<code>If-Modified-Since</code>).
+ *   If the server returns <code>304 Not Modified</code>, the stored body is reused, as well as its
+ *   deserialized payload.
+ * </p>
+ * <p>
+ *   Responses are kept in memory, within a maximum size (least recently used responses are evicted
+ *   first). If a cache directory is provided, responses are also written to disk and looked up there
+ *   if they were evicted from memory.
+ * </p>
+ * <p>
+ *   The HTTP binding's cache is disabled by default. See {@link HttpBinding} for its configuration.
+ * </p>
+ */
+public class HttpCache {
+
+  public static final long DEFAULT_MAX_SIZE = 64l * 1024 * 1024;
+
+  public static final long DEFAULT_MAX_ENTRY_SIZE = 8l * 1024 * 1024;
+
+  private static final String ENTRY_FILE_EXTENSION = ".entry";
+
+  private final static Logger LOGGER = Logger.getLogger(HttpCache.class.getCanonicalName());
+
+  /**
+   * Entries held in memory, in access order (least recently used first).
+   */
+  private final LinkedHashMap<String, HttpCacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Entries being written to disk (a write is discarded if the entry is replaced or invalidated meanwhile).
+   */
+  private final Map<String, HttpCacheEntry> pendingWrites = new HashMap<>();
+
+  private final long maxSize;
+
+  private final long maxEntrySize;
+
+  private final File directory;
+
+  private long size = 0;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong revalidations = new AtomicLong();
+
+  /**
+   * Create an in-memory cache with default size limits.
+   */
+  public HttpCache() {
+    this(DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRY_SIZE, null);
+  }
+
+  /**
+   * @param maxSize maximum size (in bytes) of the responses held in memory
+   * @param maxEntrySize maximum size (in bytes) of a single response (larger responses are not stored)
+   * @param directory directory in which responses are also stored (or {@code null} for a memory-only cache)
+   */
+  public HttpCache(long maxSize, long maxEntrySize, File directory) {
+    this.maxSize = maxSize;
+    this.maxEntrySize = maxEntrySize;
+    this.directory = directory;
+
+    if (directory != null) directory.mkdirs();
+  }
+
+  /**
+   * @return the number of requests answered from the cache, without contacting the server
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of requests for which the server sent a full response
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of stored responses the server validated (with a <code>304 Not Modified</code> response)
+   */
+  public long getRevalidationCount() {
+    return revalidations.get();
+  }
+
+  /**
+   * @return the size (in bytes) of the responses held in memory
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * Remove all stored responses (in memory and on disk). Counters are left unchanged.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    pendingWrites.clear();
+    size = 0;
+
+    if (directory != null) {
+      File[] files = directory.listFiles((dir, name) -> name.endsWith(ENTRY_FILE_EXTENSION));
+      if (files != null) for (File f : files) f.delete();
+    }
+  }
+
+  /**
+   * Return a stored response for the given URI that can be reused for the given request
+   * (it may have to be revalidated, though).
+   */
+  synchronized HttpCacheEntry lookup(String uri, HttpRequest request) {
+    HttpCacheEntry e = entries.get(uri);
+
+    if (e == null && directory != null) {
+      e = readEntry(uri);
+      if (e != null) putInMemory(e);
+    }
+
+    return e != null && e.matches(request) ? e : null;
+  }
+
+  /**
+   * @return the maximum size (in bytes) of a single response body
+   */
+  long getMaxEntrySize() {
+    return maxEntrySize;
+  }
+
+  /**
+   * Return whether the response to the given request may be stored (and is worth storing),
+   * given its status and headers. Bodies larger than {@link #getMaxEntrySize()} must not be stored.
+   */
+  boolean isStorable(HttpRequest request, HttpResponse response) {
+    if (response.getCode() != HttpStatus.SC_OK) return false;
+
+    Map<String, String> cc = getCacheControl(response);
+    if (cc.containsKey("no-store")) return false;
+
+    if (request.containsHeader(HttpHeaders.AUTHORIZATION) && !cc.containsKey("public")) return false;
+
+    Header vary = response.getFirstHeader(HttpHeaders.VARY);
+    if (vary != null && vary.getValue().trim().equals("*")) return false;
+
+    return cc.containsKey("max-age")
+        || response.containsHeader(HttpHeaders.EXPIRES)
+        || response.containsHeader(HttpHeaders.ETAG)
+        || response.containsHeader(HttpHeaders.LAST_MODIFIED);
+  }
+
+  /**
+   * Store a response in memory and, if the cache has a directory, on disk. The entry is written to disk
+   * outside the cache's lock, by the calling thread (which should thus not be an I/O dispatch thread).
+   */
+  void store(HttpCacheEntry e) {
+    if (e.getSize() > maxEntrySize) return;
+
+    synchronized (this) {
+      remove(e.getURI());
+      putInMemory(e);
+
+      if (directory == null) return;
+
+      pendingWrites.put(e.getURI(), e);
+    }
+
+    writeEntry(e);
+  }
+
+  /**
+   * Remove any stored response for the given URI (e.g. after an unsafe operation on the resource).
+   */
+  synchronized void invalidate(String uri) {
+    remove(uri);
+    pendingWrites.remove(uri);
+    if (directory != null) getEntryFile(uri).delete();
+  }
+
+  void recordHit() {
+    hits.incrementAndGet();
+  }
+
+  void recordMiss() {
+    misses.incrementAndGet();
+  }
+
+  void recordRevalidation() {
+    revalidations.incrementAndGet();
+  }
+
+  /**
+   * Parse a <code>Cache-Control</code> header value into directives (with or without argument).
+   *
+   * @param value the value of a <code>Cache-Control</code> header
+   * @return a map from directive names (in lower case) to their argument or an empty string
+   */
+  static Map<String, String> parseCacheControl(String value) {
+    Map<String, String> directives = new HashMap<>();
+
+    for (String d : value.split(",")) {
+      int i = d.indexOf("=");
+
+      if (i < 0) {
+        if (!d.isBlank()) directives.put(d.trim().toLowerCase(), "");
+      } else {
+        String arg = d.substring(i + 1).trim();
+        if (arg.length() > 1 && arg.startsWith("\"") && arg.endsWith("\"")) arg = arg.substring(1, arg.length() - 1);
+
+        directives.put(d.substring(0, i).trim().toLowerCase(), arg);
+      }
+    }
+
+    return directives;
+  }
+
+  private static Map<String, String> getCacheControl(HttpResponse response) {
+    Header h = response.getFirstHeader(HttpHeaders.CACHE_CONTROL);
+    return h == null ? new HashMap<>() : parseCacheControl(h.getValue());
+  }
+
+  private void putInMemory(HttpCacheEntry e) {
+    entries.put(e.getURI(), e);
+    size += e.getSize();
+
+    Iterator<HttpCacheEntry> it = entries.values().iterator();
+
+    while (size > maxSize && it.hasNext()) {
+      HttpCacheEntry eldest = it.next();
+      size -= eldest.getSize();
+      it.remove();
+    }
+  }
+
+  private void remove(String uri) {
+    HttpCacheEntry e = entries.remove(uri);
+    if (e != null) size -= e.getSize();
+  }
+
+  private HttpCacheEntry readEntry(String uri) {
+    File f = getEntryFile(uri);
+
+    if (!f.exists()) return null;
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+      HttpCacheEntry e = HttpCacheEntry.read(in);
+      // guard against hash collisions
+      return e.getURI().equals(uri) ? e : null;
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Could not read cached response for " + uri, e);
+      return null;
+    }
+  }
+
+  /**
+   * Write an entry to a temporary file, then move it in place if the entry is still the last one stored
+   * for its URI (readers never see a partially written file).
+   */
+  private void writeEntry(HttpCacheEntry e) {
+    File f = getEntryFile(e.getURI());
+    File tmp = new File(directory, f.getName() + "." + Thread.currentThread().getId() + ".tmp");
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      e.write(out);
+    } catch (IOException ex) {
+      LOGGER.log(Level.WARNING, "Could not write cached response for " + e.getURI(), ex);
+      tmp.delete();
+
+      synchronized (this) {
+        if (pendingWrites.get(e.getURI()) == e) pendingWrites.remove(e.getURI());
+      }
+
+      return;
+    }
+
+    synchronized (this) {
+      if (pendingWrites.get(e.getURI()) != e) {
+        tmp.delete();
+        return;
+      }
+
+      pendingWrites.remove(e.getURI());
+
+      try {
+        Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException ex) {
+        LOGGER.log(Level.WARNING, "Could not write cached response for " + e.getURI(), ex);
+        tmp.delete();
+      }
+    }
+  }
+
+  private File getEntryFile(String uri) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(uri.getBytes(StandardCharsets.UTF_8));
+
+      StringBuilder name = new StringBuilder();
+      for (byte b : hash) name.append(String.format("%02x", b));
+
+      return new File(directory, name + ENTRY_FILE_EXTENSION);
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+}
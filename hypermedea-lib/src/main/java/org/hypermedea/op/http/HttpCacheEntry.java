@@ -0,0 +1,308 @@
+package org.hypermedea.op.http;
+
+import jason.asSyntax.Literal;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.message.BasicHeader;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Stored response of {@link HttpCache}, with the information needed to compute its freshness
+ * (as per <a href="https://www.rfc-editor.org/rfc/rfc9111#section-4.2">RFC 9111, Section 4.2</a>)
+ * and to revalidate it with the origin server.
+ */
+class HttpCacheEntry {
+
+  /**
+   * If the server gives no explicit expiration time, the heuristic freshness lifetime
+   * of a response is the time since its last modification, divided by this value.
+   */
+  private static final long HEURISTIC_DIVISOR = 10;
+
+  private static final Duration MAX_HEURISTIC_LIFETIME = Duration.ofDays(1);
+
+  private final String uri;
+
+  private final int code;
+
+  private Header[] headers;
+
+  private final byte[] body;
+
+  /**
+   * Values of request headers listed in the response's <code>Vary</code> header.
+   */
+  private final Map<String, String> varyingHeaders;
+
+  private Instant requestTime;
+
+  private Instant responseTime;
+
+  /**
+   * Deserialized payload, kept in memory only (not written to disk).
+   */
+  private Collection<Literal> payload = null;
+
+  HttpCacheEntry(String uri, HttpRequest request, HttpResponse response, byte[] body, Instant requestTime, Instant responseTime) {
+    this.uri = uri;
+    this.code = response.getCode();
+    this.headers = response.getHeaders();
+    this.body = body == null ? new byte[0] : body;
+    this.varyingHeaders = new HashMap<>();
+    this.requestTime = requestTime;
+    this.responseTime = responseTime;
+
+    for (String name : getVaryFieldNames()) {
+      Header h = request.getFirstHeader(name);
+      if (h != null) varyingHeaders.put(name.toLowerCase(), h.getValue());
+    }
+  }
+
+  private HttpCacheEntry(String uri, int code, Header[] headers, byte[] body, Map<String, String> varyingHeaders, Instant requestTime, Instant responseTime) {
+    this.uri = uri;
+    this.code = code;
+    this.headers = headers;
+    this.body = body;
+    this.varyingHeaders = varyingHeaders;
+    this.requestTime = requestTime;
+    this.responseTime = responseTime;
+  }
+
+  String getURI() {
+    return uri;
+  }
+
+  /**
+   * Build a full response from the stored status, headers and body.
+   *
+   * @return an HTTP response equivalent to the one stored in cache
+   */
+  SimpleHttpResponse toResponse() {
+    SimpleHttpResponse r = new SimpleHttpResponse(code);
+    r.setHeaders(headers);
+
+    Header ct = getHeader(HttpHeaders.CONTENT_TYPE);
+    r.setBody(body, ct == null ? null : ContentType.parseLenient(ct.getValue()));
+
+    return r;
+  }
+
+  synchronized Collection<Literal> getPayload() {
+    return payload;
+  }
+
+  synchronized void setPayload(Collection<Literal> payload) {
+    this.payload = payload;
+  }
+
+  /**
+   * @return the size of the stored body (in bytes)
+   */
+  long getSize() {
+    return body.length;
+  }
+
+  /**
+   * Return whether the stored response can be reused for a request with the given headers
+   * (i.e. whether request headers nominated by the <code>Vary</code> header match).
+   */
+  boolean matches(HttpRequest request) {
+    for (String name : getVaryFieldNames()) {
+      if (name.equals("*")) return false;
+
+      Header h = request.getFirstHeader(name);
+      String value = h == null ? null : h.getValue();
+
+      if (!Objects.equals(value, varyingHeaders.get(name.toLowerCase()))) return false;
+    }
+
+    return true;
+  }
+
+  synchronized boolean isFresh(Instant now) {
+    if (getCacheControl().containsKey("no-cache")) return false;
+    return getFreshnessLifetime().compareTo(getCurrentAge(now)) > 0;
+  }
+
+  boolean hasValidators() {
+    return getHeader(HttpHeaders.ETAG) != null || getHeader(HttpHeaders.LAST_MODIFIED) != null;
+  }
+
+  /**
+   * Add <code>If-None-Match</code> and/or <code>If-Modified-Since</code> headers to the input request.
+   */
+  void addConditionalHeaders(HttpRequest request) {
+    Header etag = getHeader(HttpHeaders.ETAG);
+    if (etag != null) request.setHeader(HttpHeaders.IF_NONE_MATCH, etag.getValue());
+
+    Header lastModified = getHeader(HttpHeaders.LAST_MODIFIED);
+    if (lastModified != null) request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified.getValue());
+  }
+
+  /**
+   * Update stored headers with the ones of a <code>304 Not Modified</code> response
+   * (see <a href="https://www.rfc-editor.org/rfc/rfc9111#section-3.2">RFC 9111, Section 3.2</a>).
+   */
+  synchronized void update(HttpResponse notModified, Instant requestTime, Instant responseTime) {
+    Map<String, Header> updated = new LinkedHashMap<>();
+
+    for (Header h : headers) updated.put(h.getName().toLowerCase(), h);
+
+    for (Header h : notModified.getHeaders()) {
+      String name = h.getName().toLowerCase();
+      if (!name.equals("content-length")) updated.put(name, h);
+    }
+
+    this.headers = updated.values().toArray(new Header[0]);
+    this.requestTime = requestTime;
+    this.responseTime = responseTime;
+  }
+
+  synchronized void write(DataOutputStream out) throws IOException {
+    out.writeUTF(uri);
+    out.writeInt(code);
+    out.writeLong(requestTime.toEpochMilli());
+    out.writeLong(responseTime.toEpochMilli());
+
+    out.writeInt(headers.length);
+    for (Header h : headers) {
+      out.writeUTF(h.getName());
+      out.writeUTF(h.getValue());
+    }
+
+    out.writeInt(varyingHeaders.size());
+    for (Map.Entry<String, String> kv : varyingHeaders.entrySet()) {
+      out.writeUTF(kv.getKey());
+      out.writeUTF(kv.getValue());
+    }
+
+    out.writeInt(body.length);
+    out.write(body);
+  }
+
+  static HttpCacheEntry read(DataInputStream in) throws IOException {
+    String uri = in.readUTF();
+    int code = in.readInt();
+    Instant requestTime = Instant.ofEpochMilli(in.readLong());
+    Instant responseTime = Instant.ofEpochMilli(in.readLong());
+
+    Header[] headers = new Header[in.readInt()];
+    for (int i = 0; i < headers.length; i++) headers[i] = new BasicHeader(in.readUTF(), in.readUTF());
+
+    Map<String, String> varyingHeaders = new HashMap<>();
+    int nbVarying = in.readInt();
+    for (int i = 0; i < nbVarying; i++) varyingHeaders.put(in.readUTF(), in.readUTF());
+
+    byte[] body = new byte[in.readInt()];
+    in.readFully(body);
+
+    return new HttpCacheEntry(uri, code, headers, body, varyingHeaders, requestTime, responseTime);
+  }
+
+  /**
+   * See <a href="https://www.rfc-editor.org/rfc/rfc9111#section-4.2.1">RFC 9111, Section 4.2.1</a>.
+   */
+  private Duration getFreshnessLifetime() {
+    Map<String, String> cc = getCacheControl();
+
+    if (cc.containsKey("max-age")) {
+      try {
+        return Duration.ofSeconds(Long.parseLong(cc.get("max-age")));
+      } catch (NumberFormatException e) {
+        return Duration.ZERO;
+      }
+    }
+
+    Instant date = getDate();
+    Instant expires = getInstant(HttpHeaders.EXPIRES);
+
+    // note: invalid Expires values (e.g. "0") are parsed as null and represent a time in the past
+    if (getHeader(HttpHeaders.EXPIRES) != null) {
+      if (expires == null) return Duration.ZERO;
+      else return Duration.between(date, expires);
+    }
+
+    Instant lastModified = getInstant(HttpHeaders.LAST_MODIFIED);
+
+    if (lastModified != null && lastModified.isBefore(date)) {
+      Duration heuristic = Duration.between(lastModified, date).dividedBy(HEURISTIC_DIVISOR);
+      return heuristic.compareTo(MAX_HEURISTIC_LIFETIME) > 0 ? MAX_HEURISTIC_LIFETIME : heuristic;
+    }
+
+    return Duration.ZERO;
+  }
+
+  /**
+   * See <a href="https://www.rfc-editor.org/rfc/rfc9111#section-4.2.3">RFC 9111, Section 4.2.3</a>.
+   */
+  private Duration getCurrentAge(Instant now) {
+    Duration apparentAge = Duration.between(getDate(), responseTime);
+    if (apparentAge.isNegative()) apparentAge = Duration.ZERO;
+
+    Duration ageValue = Duration.ZERO;
+    Header age = getHeader(HttpHeaders.AGE);
+
+    if (age != null) {
+      try {
+        ageValue = Duration.ofSeconds(Long.parseLong(age.getValue().trim()));
+      } catch (NumberFormatException e) {
+        // ignore invalid Age header
+      }
+    }
+
+    Duration responseDelay = Duration.between(requestTime, responseTime);
+    Duration correctedAgeValue = ageValue.plus(responseDelay);
+    Duration correctedInitialAge = apparentAge.compareTo(correctedAgeValue) > 0 ? apparentAge : correctedAgeValue;
+    Duration residentTime = Duration.between(responseTime, now);
+
+    return correctedInitialAge.plus(residentTime);
+  }
+
+  private Instant getDate() {
+    Instant date = getInstant(HttpHeaders.DATE);
+    return date == null ? responseTime : date;
+  }
+
+  private Instant getInstant(String headerName) {
+    Header h = getHeader(headerName);
+    return h == null ? null : DateUtils.parseStandardDate(h.getValue());
+  }
+
+  private synchronized Header getHeader(String name) {
+    for (Header h : headers) {
+      if (h.getName().equalsIgnoreCase(name)) return h;
+    }
+
+    return null;
+  }
+
+  private Map<String, String> getCacheControl() {
+    Header h = getHeader(HttpHeaders.CACHE_CONTROL);
+    return h == null ? new HashMap<>() : HttpCache.parseCacheControl(h.getValue());
+  }
+
+  private Collection<String> getVaryFieldNames() {
+    Collection<String> names = new ArrayList<>();
+    Header h = getHeader(HttpHeaders.VARY);
+
+    if (h != null) {
+      for (String name : h.getValue().split(",")) {
+        if (!name.isBlank()) names.add(name.trim());
+      }
+    }
+
+    return names;
+  }
+
+}
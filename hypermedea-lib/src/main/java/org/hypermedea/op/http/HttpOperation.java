@@ -2,20 +2,27 @@ package org.hypermedea.op.http;
 
 import jason.asSyntax.Literal;
 import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
-import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
-import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
 import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ConnectionClosedException;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpHeaders;
-import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.HttpStreamResetException;
 import org.hypermedea.ct.RepresentationHandlers;
+import org.hypermedea.op.InvalidFormException;
 import org.hypermedea.op.SynchronousOperation;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class HttpOperation extends SynchronousOperation {
@@ -33,23 +40,69 @@ public class HttpOperation extends SynchronousOperation {
 
   private final static Logger LOGGER = Logger.getLogger(HttpOperation.class.getCanonicalName());
 
-  private final class HttpOperationHandler implements FutureCallback<SimpleHttpResponse> {
+  private final class HttpOperationHandler implements FutureCallback<HttpResponse> {
 
+    /**
+     * Called as soon as the response head is received (the body may still be in transit).
+     */
     @Override
-    public void completed(SimpleHttpResponse r) {
-      onResponse(new HttpResponse(r, HttpOperation.this));
-      client.close(CloseMode.GRACEFUL);
+    public void completed(HttpResponse r) {
+      Instant responseTime = Instant.now();
+      int code = r.getHead().getCode();
+
+      if (cache.isPresent() && getMethod().equals(GET)) {
+        HttpCache c = cache.get();
+
+        if (code == HttpStatus.SC_NOT_MODIFIED && cacheEntry != null) {
+          c.recordRevalidation();
+          cacheEntry.update(r.getHead(), requestTime, responseTime);
+          store(c, cacheEntry);
+
+          dispatch(new HttpResponse(cacheEntry, HttpOperation.this));
+          return;
+        }
+
+        c.recordMiss();
+
+        if (c.isStorable(request, r.getHead())) {
+          // body is copied while it is being received, if not too large
+          consumer.copyBody(c.getMaxEntrySize(), body -> {
+            HttpCacheEntry e = new HttpCacheEntry(target, request, r.getHead(), body, requestTime, responseTime);
+            store(c, e);
+            r.setCacheEntry(e);
+          });
+        }
+      } else if (cache.isPresent() && !isSafe() && code < 400) {
+        cache.get().invalidate(target);
+      }
+
+      dispatch(r);
     }
 
     @Override
     public void failed(Exception ex) {
-      onError();
-      client.close(CloseMode.GRACEFUL);
+      LOGGER.log(Level.FINE, "HTTP exchange failed: " + target, ex);
+      onError(ex);
     }
 
     @Override
     public void cancelled() {
-      client.close(CloseMode.GRACEFUL);
+      onError();
+    }
+
+    /**
+     * Pass the response to the operation outside of the I/O dispatch thread, which must remain
+     * available to receive the response body.
+     */
+    private void dispatch(HttpResponse r) {
+      HttpBinding.getResponseExecutor().execute(() -> onResponse(r));
+    }
+
+    /**
+     * Store a response in the cache outside of the I/O dispatch thread (the cache may write it to disk).
+     */
+    private void store(HttpCache c, HttpCacheEntry e) {
+      HttpBinding.getResponseExecutor().execute(() -> c.store(e));
     }
 
   }
@@ -59,16 +112,56 @@ public class HttpOperation extends SynchronousOperation {
   private final HttpOperationHandler handler;
   private final SimpleHttpRequest request;
 
-  private CloseableHttpAsyncClient client;
+  private final CloseableHttpAsyncClient client;
 
+  private final long maxBodySize;
+
+  /**
+   * Content coding used to compress the request payload (if any).
+   */
+  private final Optional<String> contentEncoding;
+
+  /**
+   * Size of the request payload before compression.
+   */
+  private long unencodedPayloadSize = 0;
+
+  private volatile HttpResponseConsumer consumer;
+
+  /**
+   * Pending HTTP exchange (done as soon as the response head is received).
+   */
+  private volatile Future<HttpResponse> exchange = null;
+
+  private final Optional<HttpCache> cache;
+
+  /**
+   * Cached response being revalidated by the request (if any).
+   */
+  private HttpCacheEntry cacheEntry = null;
+
+  private Instant requestTime;
+
+  /**
+   * Create an HTTP operation executed with one of the clients shared by all HTTP operations,
+   * depending on the HTTP version selected in the form (see {@link HttpBinding#getClient(Map)}).
+   */
   public HttpOperation(String targetURI, Map<String, Object> formFields) {
+    this(targetURI, formFields, HttpBinding.getClient(formFields));
+  }
+
+  /**
+   * Create an HTTP operation executed with the given client. The client must be started
+   * and it is not closed when the operation ends.
+   */
+  public HttpOperation(String targetURI, Map<String, Object> formFields, CloseableHttpAsyncClient client) {
     super(targetURI, formFields);
 
     this.target = targetURI;
     this.handler = new HttpOperationHandler();
-    this.client = HttpAsyncClients.createDefault();
-
-    this.client.start();
+    this.client = client;
+    this.cache = HttpBinding.getCache();
+    this.maxBodySize = HttpBinding.getMaxBodySize(formFields);
 
     String methodName = getMethod();
     this.request = SimpleHttpRequest.create(methodName, getTargetURI());
@@ -83,20 +176,88 @@ public class HttpOperation extends SynchronousOperation {
     }
 
     if (!acceptHeaderSet) request.addHeader(HttpHeaders.ACCEPT, ACCEPT_HEADER);
+    request.addHeader(HttpHeaders.ACCEPT_ENCODING, ContentCodings.getAcceptEncoding());
+
+    Object coding = formFields.get(HTTP.ContentEncoding);
+    this.contentEncoding = Optional.ofNullable(coding).map(Object::toString);
+
+    if (contentEncoding.isPresent() && !ContentCodings.isSupportedForEncoding(contentEncoding.get()))
+      throw new InvalidFormException("Unsupported content coding for requests: " + coding);
   }
 
   @Override
   protected void sendSingleRequest() {
-    client.execute(request, handler);
+    if (cache.isPresent() && getMethod().equals(GET)) {
+      HttpCacheEntry e = cache.get().lookup(target, request);
+
+      if (e != null && e.isFresh(Instant.now())) {
+        cache.get().recordHit();
+        onResponse(new HttpResponse(e, this));
+        return;
+      }
+
+      if (e != null && e.hasValidators()) {
+        e.addConditionalHeaders(request);
+        cacheEntry = e;
+      }
+    }
+
+    byte[] body = request.getBodyBytes();
+    if (body != null) HttpBinding.getStatistics().recordSent(body.length, unencodedPayloadSize);
+
+    consumer = new HttpResponseConsumer(this, maxBodySize);
+
+    requestTime = Instant.now();
+    exchange = client.execute(SimpleRequestProducer.create(request), consumer, handler);
+  }
+
+  /**
+   * Cancel the HTTP exchange if no response was received yet. Otherwise, stop passing the response
+   * body to readers (the rest of the body is drained, for the connection to be re-used).
+   */
+  @Override
+  protected void abort() throws IOException {
+    Future<HttpResponse> f = exchange;
+    if (f != null) f.cancel(true);
+
+    HttpResponseConsumer c = consumer;
+    if (c != null) c.release();
+  }
+
+  /**
+   * Also consider as transient connections closed by the server and HTTP/2 streams reset by the server.
+   */
+  @Override
+  protected boolean isTransient(Throwable cause) {
+    return cause instanceof ConnectionClosedException
+        || cause instanceof HttpStreamResetException
+        || super.isTransient(cause);
   }
 
   @Override
   public void setPayload(Collection<Literal> payload) {
-    ContentType ct = ContentType.create(RepresentationHandlers.getDefaultContentType(payload));
+    // the Content-Type given in the form (if any) selects the serialization
+    Object ctField = form.get(HTTP.ContentType);
+    ContentType ct = ctField == null
+        ? ContentType.create(RepresentationHandlers.getDefaultContentType(payload))
+        : ContentType.parse(ctField.toString());
 
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     try {
-      RepresentationHandlers.serialize(payload, out, target);
+      RepresentationHandlers.serialize(payload, out, target, ct.toString());
+
+      unencodedPayloadSize = out.size();
+
+      if (contentEncoding.isPresent()) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+        try (OutputStream encoder = ContentCodings.encode(encoded, contentEncoding.get())) {
+          out.writeTo(encoder);
+        }
+
+        request.setHeader(HttpHeaders.CONTENT_ENCODING, contentEncoding.get());
+        out = encoded;
+      }
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -4,9 +4,13 @@ import jason.asSyntax.ASSyntax;
 import jason.asSyntax.Literal;
 import jason.asSyntax.Structure;
 import jason.asSyntax.Term;
+import org.apache.hc.client5.http.async.methods.SimpleBody;
 import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.utils.DateUtils;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
 import org.hypermedea.ct.RepresentationHandlers;
 import org.hypermedea.op.BaseResponse;
 import org.hypermedea.op.Operation;
@@ -14,8 +18,11 @@ import org.hypermedea.op.Operation;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -34,12 +41,51 @@ public class HttpResponse extends BaseResponse {
 
   private final static Pattern LINK_HEADER_PATTERN = Pattern.compile("\\w*<(?<target>.*)>;\\w*rel=\"(?<rel>.*)\"");
 
+  /**
+   * Response status and headers (the body is read from {@link #body}).
+   */
   private final SimpleHttpResponse response;
 
+  /**
+   * Response body, possibly still being received (or {@code null} if the response has no body
+   * or if it was already deserialized).
+   */
+  private InputStream body;
+
+  /**
+   * Cached response from which this response is built or in which it was stored (if any).
+   */
+  private volatile HttpCacheEntry cacheEntry;
+
+  /**
+   * Payload deserialized from the response body, on first call to {@link #getPayload()}.
+   */
+  private Collection<Literal> payload = null;
+
   public HttpResponse(SimpleHttpResponse response, Operation op) {
+    this(response, response.getBodyBytes() == null ? null : new ByteArrayInputStream(response.getBodyBytes()), op);
+  }
+
+  /**
+   * Build a response from its head (status and headers) and a stream over its body.
+   * The body is consumed when the payload is first requested.
+   */
+  HttpResponse(SimpleHttpResponse head, InputStream body, Operation op) {
     super(op);
 
-    this.response = response;
+    this.response = head;
+    this.body = body;
+    this.cacheEntry = null;
+  }
+
+  /**
+   * Build a response from a cached response. The deserialized payload is shared
+   * between all responses built from the same cache entry.
+   */
+  HttpResponse(HttpCacheEntry cacheEntry, Operation op) {
+    this(cacheEntry.toResponse(), op);
+
+    this.cacheEntry = cacheEntry;
   }
 
   @Override
@@ -50,25 +96,67 @@ public class HttpResponse extends BaseResponse {
     else return ResponseStatus.UNKNOWN_ERROR;
   }
 
+  /**
+   * Deserialize the response body while it is being received (blocking until the end of the body).
+   * If the body is compressed, it is decompressed on the fly.
+   * The payload is deserialized only once, subsequent calls return a copy of it. The raw body is
+   * released after deserialization.
+   *
+   * @return the payload of the response, including links given in headers
+   */
   @Override
-  public Collection<Literal> getPayload() {
-    Collection<Literal> terms = new HashSet<>();
-    byte[] bytes = response.getBodyBytes();
+  public synchronized Collection<Literal> getPayload() {
+    if (payload == null && cacheEntry != null) payload = cacheEntry.getPayload();
+
+    if (payload == null) {
+      Collection<Literal> terms = new HashSet<>();
+
+      if (body != null) {
+        Header encoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+        long maxSize = HttpBinding.getMaxBodySize(operation.getForm());
+
+        // the body is closed (and drained) even if decoders can't be created
+        try (InputStream raw = body; InputStream in = ContentCodings.decode(raw, encoding == null ? null : encoding.getValue(), maxSize, HttpBinding.getStatistics())) {
+          terms.addAll(RepresentationHandlers.deserialize(in, operation.getTargetURI(), getContentType()));
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        } finally {
+          body = null;
+          if (response.getBody() != null) response.setBody((SimpleBody) null);
+        }
+      }
 
-    if (bytes == null) return terms;
+      terms.addAll(getLinks());
 
-    InputStream in = new ByteArrayInputStream(bytes);
-    String ct = getContentType();
+      payload = terms;
 
-    try {
-      terms.addAll(RepresentationHandlers.deserialize(in, operation.getTargetURI(), ct));
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      // the cache entry (if any) is set before the end of the body is signaled
+      if (cacheEntry != null) cacheEntry.setPayload(payload);
     }
 
-    terms.addAll(getLinks());
+    return new HashSet<>(payload);
+  }
+
+  /**
+   * Return the value of the <code>Retry-After</code> header, given either as a number of seconds
+   * or as a date, if the server is unavailable (<code>503</code>) or rate limits the client (<code>429</code>).
+   */
+  @Override
+  public Optional<Duration> getRetryAfter() {
+    int code = response.getCode();
+    Header h = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
 
-    return terms;
+    if (h == null || (code != HttpStatus.SC_SERVICE_UNAVAILABLE && code != HttpStatus.SC_TOO_MANY_REQUESTS))
+      return Optional.empty();
+
+    String value = h.getValue().trim();
+
+    try {
+      return Optional.of(Duration.ofSeconds(Long.parseLong(value)));
+    } catch (NumberFormatException e) {
+      Instant date = DateUtils.parseStandardDate(value);
+      return date == null ? Optional.empty() : Optional.of(Duration.between(Instant.now(), date));
+    }
   }
 
   public Collection<Literal> getLinks() {
@@ -99,8 +187,17 @@ public class HttpResponse extends BaseResponse {
     return links;
   }
 
+  SimpleHttpResponse getHead() {
+    return response;
+  }
+
+  void setCacheEntry(HttpCacheEntry cacheEntry) {
+    this.cacheEntry = cacheEntry;
+  }
+
   private String getContentType() {
-    ContentType ct = response.getContentType();
+    Header h = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+    ContentType ct = h == null ? null : ContentType.parseLenient(h.getValue());
 
     if (ct != null) return ct.toString();
     return DEFAULT_HTTP_CT;
@@ -0,0 +1,151 @@
+package org.hypermedea.op.http;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.hypermedea.op.Operation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Response consumer that hands over an {@link HttpResponse} as soon as the response head is
+ * received. The response body is streamed through an {@link HttpBodyStream}, so that representation
+ * handlers can deserialize it while it is still being received.
+ */
+class HttpResponseConsumer implements AsyncResponseConsumer<HttpResponse> {
+
+  private final Operation operation;
+
+  /**
+   * Maximum number of bytes accepted in the response body (negative if unlimited).
+   */
+  private final long maxBodySize;
+
+  private HttpBodyStream body = null;
+
+  /**
+   * Whether the body is passed to readers with flow control. Error responses are
+   * received without flow control, in case their body is never read.
+   */
+  private boolean streaming = false;
+
+  private long received = 0;
+
+  private ByteArrayOutputStream copy = null;
+
+  private long maxCopySize;
+
+  private Consumer<byte[]> copyCallback;
+
+  HttpResponseConsumer(Operation op, long maxBodySize) {
+    this.operation = op;
+    this.maxBodySize = maxBodySize;
+  }
+
+  /**
+   * Keep a copy of the response body while it is being received and pass it to the input callback
+   * once fully received. If the body exceeds {@code maxSize}, the copy is dropped.
+   * Must be called before the body is consumed (i.e. when the response head is received).
+   *
+   * @param maxSize maximum size of the copy (in bytes)
+   * @param callback function called with the full body, before end of stream is signaled to readers
+   */
+  void copyBody(long maxSize, Consumer<byte[]> callback) {
+    copy = new ByteArrayOutputStream();
+    maxCopySize = maxSize;
+    copyCallback = callback;
+  }
+
+  @Override
+  public void consumeResponse(org.apache.hc.core5.http.HttpResponse head, EntityDetails entityDetails, HttpContext context, FutureCallback<HttpResponse> resultCallback) throws HttpException, IOException {
+    if (entityDetails != null && maxBodySize >= 0 && entityDetails.getContentLength() > maxBodySize)
+      throw new IOException(getMaxBodySizeMessage());
+
+    body = entityDetails == null ? null : new HttpBodyStream();
+    streaming = head.getCode() >= 200 && head.getCode() < 300;
+
+    resultCallback.completed(new HttpResponse(SimpleHttpResponse.copy(head), body, operation));
+
+    if (body == null) endCopy();
+  }
+
+  @Override
+  public void informationResponse(org.apache.hc.core5.http.HttpResponse response, HttpContext context) {
+    // ignore 1xx responses
+  }
+
+  @Override
+  public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+    // a closed body is drained without flow control (see HttpBodyStream)
+    if (body != null && streaming) body.updateCapacity(capacityChannel);
+    else capacityChannel.update(Integer.MAX_VALUE);
+  }
+
+  @Override
+  public void consume(ByteBuffer src) throws IOException {
+    received += src.remaining();
+    HttpBinding.getStatistics().recordReceived(src.remaining());
+
+    if (maxBodySize >= 0 && received > maxBodySize) {
+      IOException e = new IOException(getMaxBodySizeMessage());
+      body.fail(e);
+      // aborts the exchange
+      throw e;
+    }
+
+    if (copy != null) {
+      if (received > maxCopySize) {
+        copy = null;
+      } else {
+        ByteBuffer dup = src.duplicate();
+        byte[] bytes = new byte[dup.remaining()];
+        dup.get(bytes);
+        copy.write(bytes);
+      }
+    }
+
+    body.fill(src);
+  }
+
+  @Override
+  public void streamEnd(List<? extends Header> trailers) {
+    endCopy();
+    body.end();
+  }
+
+  @Override
+  public void failed(Exception cause) {
+    if (body != null) body.fail(cause instanceof IOException ? (IOException) cause : new IOException(cause));
+  }
+
+  /**
+   * Stop passing the body to readers, e.g. if the operation was abandoned. The rest of the body is drained.
+   */
+  void release() throws IOException {
+    if (body != null) body.close();
+  }
+
+  @Override
+  public void releaseResources() {
+    // buffered content remains available to readers
+  }
+
+  private void endCopy() {
+    if (copy != null) copyCallback.accept(copy.toByteArray());
+    copy = null;
+  }
+
+  private String getMaxBodySizeMessage() {
+    return "Response body of " + operation.getTargetURI() + " exceeds maximum size (" + maxBodySize + " bytes)";
+  }
+
+}
@@ -0,0 +1,79 @@
+package org.hypermedea.op.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters on the bodies transferred by HTTP operations, to measure the effect of content codings
+ * (see {@link HTTP#ContentEncoding}). All counters are cumulative since the JVM started
+ * or since the last call to {@link #reset()}.
+ */
+public class HttpStatistics {
+
+  private final AtomicLong receivedBytes = new AtomicLong();
+
+  private final AtomicLong decodedBytes = new AtomicLong();
+
+  private final AtomicLong decodingTime = new AtomicLong();
+
+  private final AtomicLong sentBytes = new AtomicLong();
+
+  private final AtomicLong unencodedSentBytes = new AtomicLong();
+
+  /**
+   * @return the number of response body bytes received from the network (possibly compressed)
+   */
+  public long getReceivedBytes() {
+    return receivedBytes.get();
+  }
+
+  /**
+   * @return the number of response body bytes passed to representation handlers, after decompression
+   */
+  public long getDecodedBytes() {
+    return decodedBytes.get();
+  }
+
+  /**
+   * @return the time spent decompressing response bodies (in nanoseconds)
+   */
+  public long getDecodingTime() {
+    return decodingTime.get();
+  }
+
+  /**
+   * @return the number of request body bytes sent over the network (possibly compressed)
+   */
+  public long getSentBytes() {
+    return sentBytes.get();
+  }
+
+  /**
+   * @return the number of request body bytes before compression
+   */
+  public long getUnencodedSentBytes() {
+    return unencodedSentBytes.get();
+  }
+
+  public void reset() {
+    receivedBytes.set(0);
+    decodedBytes.set(0);
+    decodingTime.set(0);
+    sentBytes.set(0);
+    unencodedSentBytes.set(0);
+  }
+
+  void recordReceived(long bytes) {
+    receivedBytes.addAndGet(bytes);
+  }
+
+  void recordDecoded(long bytes, long nanos) {
+    decodedBytes.addAndGet(bytes);
+    decodingTime.addAndGet(nanos);
+  }
+
+  void recordSent(long bytes, long unencodedBytes) {
+    sentBytes.addAndGet(bytes);
+    unencodedSentBytes.addAndGet(unencodedBytes);
+  }
+
+}
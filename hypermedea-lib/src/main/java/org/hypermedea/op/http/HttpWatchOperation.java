@@ -0,0 +1,297 @@
+package org.hypermedea.op.http;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.hypermedea.op.BaseOperation;
+import org.hypermedea.op.InvalidFormException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ *   WATCH operation over HTTP, implemented with <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html">
+ *   Server-Sent Events</a>: the client sends a GET request with <code>Accept: text/event-stream</code> and
+ *   the server keeps the response open, sending an event each time the resource changes. Each event is passed
+ *   to response callbacks as soon as it is received, as a response whose payload is the event data (see
+ *   {@link HTTP#EventContentType}).
+ * </p>
+ * <p>
+ *   If the connection is closed by the server or lost, the client reconnects after a delay (set by the server
+ *   or {@link #DEFAULT_RECONNECTION_TIME} by default), sending the ID of the last event received in a
+ *   <code>Last-Event-ID</code> header. The operation ends if the server returns <code>204 No Content</code>,
+ *   an error or a response that isn't an event stream.
+ * </p>
+ * <p>
+ *   Note: in HTTP/1.1 mode, each active WATCH operation holds a connection of the pool.
+ *   In HTTP/2 mode, WATCH operations on the same host are multiplexed over a single connection.
+ * </p>
+ */
+public class HttpWatchOperation extends BaseOperation {
+
+  public static final String EVENT_STREAM_CT = "text/event-stream";
+
+  public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+  /**
+   * Default delay (in milliseconds) before reconnecting, if the server sent no <code>retry</code> field.
+   */
+  public static final long DEFAULT_RECONNECTION_TIME = 3000l;
+
+  private final static Logger LOGGER = Logger.getLogger(HttpWatchOperation.class.getCanonicalName());
+
+  /**
+   * Consumer for a single connection to the event stream.
+   */
+  private final class EventStreamConsumer implements AsyncResponseConsumer<Void> {
+
+    private final EventStreamParser parser;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private boolean open = false;
+
+    private EventStreamConsumer() {
+      parser = new EventStreamParser(HttpWatchOperation.this::onEvent, maxEventSize);
+    }
+
+    @Override
+    public void consumeResponse(org.apache.hc.core5.http.HttpResponse head, EntityDetails entityDetails, HttpContext context, FutureCallback<Void> resultCallback) {
+      if (head.getCode() == HttpStatus.SC_OK && isEventStream(entityDetails)) {
+        open = true;
+      } else if (head.getCode() == HttpStatus.SC_NO_CONTENT) {
+        LOGGER.info("Server ended WATCH operation on " + target);
+        stop();
+      } else {
+        LOGGER.warning("Server did not return an event stream for " + target + ": " + head.getCode());
+        stop();
+
+        // notify callbacks of the error status (the response body is discarded)
+        HttpResponse r = new HttpResponse(SimpleHttpResponse.copy(head), null, HttpWatchOperation.this);
+        dispatch(() -> onResponse(r));
+      }
+
+      resultCallback.completed(null);
+    }
+
+    @Override
+    public void informationResponse(org.apache.hc.core5.http.HttpResponse response, HttpContext context) {
+      // ignore 1xx responses
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+      // events are parsed as soon as received
+      capacityChannel.update(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+      if (open && !ended) parser.feed(src);
+      else src.position(src.limit());
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) {
+      if (open) onDisconnect(this, null);
+    }
+
+    @Override
+    public void failed(Exception cause) {
+      onDisconnect(this, cause);
+    }
+
+    @Override
+    public void releaseResources() {
+      // nothing to release
+    }
+
+  }
+
+  private final String target;
+
+  private final SimpleHttpRequest request;
+
+  private final CloseableHttpAsyncClient client;
+
+  private final ContentType eventContentType;
+
+  private final long maxEventSize;
+
+  /**
+   * Callbacks to execute in order, outside of I/O dispatch threads.
+   */
+  private final Queue<Runnable> pendingCallbacks = new ConcurrentLinkedQueue<>();
+
+  private final AtomicBoolean dispatching = new AtomicBoolean(false);
+
+  private volatile boolean ended = false;
+
+  private volatile String lastEventId = "";
+
+  private volatile long reconnectionTime = DEFAULT_RECONNECTION_TIME;
+
+  private Future<Void> exchange = null;
+
+  private ScheduledFuture<?> reconnection = null;
+
+  public HttpWatchOperation(String targetURI, Map<String, Object> formFields) {
+    this(targetURI, formFields, HttpBinding.getClient(formFields));
+  }
+
+  /**
+   * Create a WATCH operation executed with the given client. The client must be started
+   * and it is not closed when the operation ends.
+   */
+  public HttpWatchOperation(String targetURI, Map<String, Object> formFields, CloseableHttpAsyncClient client) {
+    super(targetURI, formFields);
+
+    this.target = targetURI;
+    this.client = client;
+    this.maxEventSize = HttpBinding.getMaxBodySize(formFields);
+
+    Object ct = formFields.get(HTTP.EventContentType);
+    this.eventContentType = ContentType.parseLenient(ct == null ? HttpResponse.DEFAULT_HTTP_CT : ct.toString());
+
+    if (eventContentType == null) throw new InvalidFormException("Invalid event Content-Type: " + ct);
+
+    this.request = SimpleHttpRequest.create(GET, targetURI);
+
+    for (String name : formFields.keySet()) {
+      String h = HTTP.getHeader(name);
+      if (h != null && !h.equals(HttpHeaders.ACCEPT)) request.addHeader(h, formFields.get(name));
+    }
+
+    request.setHeader(HttpHeaders.ACCEPT, EVENT_STREAM_CT);
+    request.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+  }
+
+  @Override
+  protected synchronized void sendSingleRequest() {
+    if (ended) return;
+
+    if (!lastEventId.isEmpty()) request.setHeader(LAST_EVENT_ID_HEADER, lastEventId);
+
+    EventStreamConsumer consumer = new EventStreamConsumer();
+
+    exchange = client.execute(SimpleRequestProducer.create(request), consumer, new FutureCallback<>() {
+      @Override
+      public void completed(Void result) {
+        // events are consumed until the stream ends
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        onDisconnect(consumer, ex);
+      }
+
+      @Override
+      public void cancelled() {
+        onDisconnect(consumer, null);
+      }
+    });
+  }
+
+  /**
+   * Close the event stream and stop reconnecting.
+   */
+  @Override
+  protected synchronized void end() {
+    ended = true;
+
+    if (reconnection != null) reconnection.cancel(false);
+    if (exchange != null) exchange.cancel(true);
+  }
+
+  private void onEvent(String id, String type, String data) {
+    lastEventId = id;
+
+    SimpleHttpResponse head = new SimpleHttpResponse(HttpStatus.SC_OK);
+    head.setHeader(HttpHeaders.CONTENT_TYPE, eventContentType.toString());
+    if (!id.isEmpty()) head.setHeader(LAST_EVENT_ID_HEADER, id);
+
+    byte[] body = data.getBytes(eventContentType.getCharset() == null ? StandardCharsets.UTF_8 : eventContentType.getCharset());
+    HttpResponse r = new HttpResponse(head, new ByteArrayInputStream(body), this);
+
+    dispatch(() -> onResponse(r));
+  }
+
+  private void onDisconnect(EventStreamConsumer consumer, Exception cause) {
+    if (!consumer.closed.compareAndSet(false, true)) return;
+
+    long retry = consumer.parser.getRetry();
+    if (retry >= 0) reconnectionTime = retry;
+
+    if (cause != null && !ended) {
+      LOGGER.log(Level.FINE, "Connection lost during WATCH operation on " + target, cause);
+      dispatch(this::onError);
+    }
+
+    scheduleReconnection();
+  }
+
+  private synchronized void scheduleReconnection() {
+    if (ended) return;
+
+    reconnection = HttpBinding.getScheduledExecutor().schedule(this::sendSingleRequest, reconnectionTime, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * End the operation on the server's initiative.
+   */
+  private void stop() {
+    ended = true;
+  }
+
+  /**
+   * Execute the input callback on the binding's response executor, preserving the order of callbacks.
+   */
+  private void dispatch(Runnable callback) {
+    pendingCallbacks.add(callback);
+    HttpBinding.getResponseExecutor().execute(this::drainCallbacks);
+  }
+
+  private void drainCallbacks() {
+    while (!pendingCallbacks.isEmpty() && dispatching.compareAndSet(false, true)) {
+      try {
+        Runnable cb;
+        while ((cb = pendingCallbacks.poll()) != null) cb.run();
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Response callback failed during WATCH operation on " + target, e);
+      } finally {
+        dispatching.set(false);
+      }
+    }
+  }
+
+  private static boolean isEventStream(EntityDetails entityDetails) {
+    if (entityDetails == null || entityDetails.getContentType() == null) return false;
+
+    ContentType ct = ContentType.parseLenient(entityDetails.getContentType());
+    return ct != null && ct.getMimeType().equalsIgnoreCase(EVENT_STREAM_CT);
+  }
+
+}
@@ -1,4 +1,4 @@
 /**
- * HTTP binding, supporting all operation types except WATCH.
+ * HTTP binding, supporting all operation types (WATCH via Server-Sent Events).
  */
 package org.hypermedea.op.http;
\ No newline at end of file
@@ -0,0 +1,193 @@
+package org.hypermedea.store;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.*;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.system.Txn;
+import org.hypermedea.HypermedeaArtifact;
+import org.hypermedea.ct.rdf.RDFHandler;
+import org.hypermedea.tools.Identifiers;
+
+import java.util.*;
+
+/**
+ * <p>
+ *   In-memory, indexed RDF dataset holding the RDF representations of resources (see
+ *   {@link org.hypermedea.ct.rdf.RDFHandler}), with one named graph per resource (the source
+ *   of its representation). Representations that are not RDF are ignored.
+ * </p>
+ * <p>
+ *   Quads are indexed in all permutations of graph, subject, predicate and object (see
+ *   {@link DatasetGraphFactory#createTxnMem()}), such that triple patterns are matched by index lookups.
+ *   The dataset can also be queried with SPARQL (<code>SELECT</code> and <code>ASK</code> queries).
+ *   The default graph of queries is the union of all named graphs.
+ * </p>
+ * <p>
+ *   Updates are incremental: only triples added to or removed from a representation are written to the dataset.
+ * </p>
+ */
+public class DatasetStore implements RepresentationStore {
+
+    private final DatasetGraph dataset = DatasetGraphFactory.createTxnMem();
+
+    /**
+     * RDF triples of the representation of each source, as last written to the dataset.
+     */
+    private final Map<String, Set<Literal>> representations = new HashMap<>();
+
+    @Override
+    public synchronized void update(String source, Collection<Literal> representation) {
+        Node g = NodeFactory.createURI(source);
+
+        Set<Literal> previous = representations.getOrDefault(source, Collections.emptySet());
+        Set<Literal> current = new HashSet<>();
+
+        for (Literal t : representation) {
+            if (t.getFunctor().equals(RDFHandler.RDF_FUNCTOR)) current.add(t);
+        }
+
+        Txn.executeWrite(dataset, () -> {
+            for (Literal t : previous) {
+                if (current.contains(t)) continue;
+
+                Triple triple = RDFHandler.getTriple(t);
+                if (triple != null) dataset.delete(g, triple.getSubject(), triple.getPredicate(), triple.getObject());
+            }
+
+            for (Literal t : current) {
+                if (previous.contains(t)) continue;
+
+                Triple triple = RDFHandler.getTriple(t);
+                if (triple != null) dataset.add(g, triple.getSubject(), triple.getPredicate(), triple.getObject());
+            }
+        });
+
+        if (current.isEmpty()) representations.remove(source);
+        else representations.put(source, current);
+    }
+
+    @Override
+    public synchronized void remove(String source) {
+        Node g = NodeFactory.createURI(source);
+        Txn.executeWrite(dataset, () -> dataset.deleteAny(g, Node.ANY, Node.ANY, Node.ANY));
+
+        representations.remove(source);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The subject, predicate and graph of triples are looked up in the dataset's indexes. The object is
+     * looked up if it is a blank node; literal objects and URI objects given as Jason strings (which may be
+     * represented by strings as well) are matched by comparing their Jason terms, after the lookup of the other
+     * nodes. A pattern with only an object of this kind thus requires a scan of the whole dataset.
+     */
+    @Override
+    public Collection<Literal> match(Term subject, Term predicate, Term object, String source) {
+        Node g = source == null ? Node.ANY : NodeFactory.createURI(source);
+        Node s = getIndexedNode(subject, true);
+        Node p = getIndexedNode(predicate, true);
+        Node o = getIndexedNode(object, false);
+
+        return Txn.calculateRead(dataset, () -> {
+            List<Literal> matches = new ArrayList<>();
+
+            Iterator<Quad> it = dataset.find(g, s == null ? Node.ANY : s, p == null ? Node.ANY : p, o == null ? Node.ANY : o);
+
+            while (it.hasNext()) {
+                Quad q = it.next();
+
+                if (s == null && !subject.equals(RDFHandler.getTerm(q.getSubject()))) continue;
+                if (p == null && !predicate.equals(RDFHandler.getTerm(q.getPredicate()))) continue;
+                if (o == null && !object.equals(RDFHandler.getTerm(q.getObject()))) continue;
+
+                Literal match = RDFHandler.getLiteral(q.asTriple());
+                match.addAnnot(ASSyntax.createStructure(HypermedeaArtifact.SOURCE_FUNCTOR, ASSyntax.createString(q.getGraph().getURI())));
+
+                matches.add(match);
+            }
+
+            return matches;
+        });
+    }
+
+    /**
+     * Evaluate a SPARQL query over all representations.
+     *
+     * @param query a SPARQL <code>SELECT</code> or <code>ASK</code> query
+     * @return a boolean for <code>ASK</code> queries, a list of solutions for <code>SELECT</code> queries
+     *         (each solution being the list of values of the selected variables, an unbound value being
+     *         represented as an anonymous variable)
+     * @throws QueryException if the query is invalid or is neither a <code>SELECT</code> nor an <code>ASK</code> query
+     */
+    @Override
+    public Object query(String query) throws QueryException {
+        Query q = QueryFactory.create(query);
+
+        if (!q.isSelectType() && !q.isAskType())
+            throw new QueryException("Only SELECT and ASK queries are supported");
+
+        return Txn.calculateRead(dataset, () -> {
+            try (QueryExecution exec = QueryExecutionFactory.create(q, DatasetFactory.wrap(getUnionView()))) {
+                if (q.isAskType()) return exec.execAsk();
+
+                List<List<Term>> solutions = new ArrayList<>();
+                List<Var> vars = q.getProjectVars();
+
+                ResultSet rs = exec.execSelect();
+
+                while (rs.hasNext()) {
+                    Binding b = rs.nextBinding();
+                    List<Term> solution = new ArrayList<>();
+
+                    for (Var v : vars) {
+                        Node n = b.get(v);
+                        solution.add(n == null ? ASSyntax.createVar() : RDFHandler.getTerm(n));
+                    }
+
+                    solutions.add(solution);
+                }
+
+                return solutions;
+            }
+        });
+    }
+
+    /**
+     * Return the node to look up in the dataset's indexes for the given term.
+     *
+     * @return {@link Node#ANY} if the term is {@code null}, {@code null} if the term must be compared after lookup
+     */
+    private static Node getIndexedNode(Term t, boolean resource) {
+        if (t == null) return Node.ANY;
+
+        try {
+            if (t.isAtom() && Identifiers.getLexicalForm(t).startsWith(RDFHandler.BNODE_PREFIX)) return RDFHandler.getNode(t, RDFHandler.RDF_TYPE_BNODE_ATOM);
+            else if (t.isString() && resource) return RDFHandler.getNode(t, RDFHandler.RDF_TYPE_URI_ATOM);
+            else return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Build a view of the dataset whose default graph is the union of all named graphs
+     * (named graphs are linked, not copied).
+     */
+    private DatasetGraph getUnionView() {
+        DatasetGraph view = DatasetGraphFactory.create(dataset.getUnionGraph());
+        dataset.listGraphNodes().forEachRemaining(g -> view.addGraph(g, dataset.getGraph(g)));
+
+        return view;
+    }
+
+}
@@ -0,0 +1,161 @@
+package org.hypermedea.store;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
+import org.hypermedea.HypermedeaArtifact;
+import org.hypermedea.ct.rdf.RDFHandler;
+import org.hypermedea.tools.TermInterner;
+
+import java.util.*;
+
+/**
+ * <p>
+ *   Lightweight store of RDF triples, holding triples as Jason terms (without conversion to RDF nodes).
+ *   Triples are indexed in three permutation indexes (SPO, POS, OSP), built on sorted maps: any triple pattern
+ *   is matched by a lookup in <code>O(log n)</code> in one of the indexes, followed by a scan of the matching triples.
+ *   Updates are incremental: only triples added to or removed from a representation are (re-)indexed.
+ * </p>
+ * <p>
+ *   This store doesn't support SPARQL queries (see {@link DatasetStore}).
+ * </p>
+ */
+public class IndexedStore implements RepresentationStore {
+
+    /**
+     * Permutation index: first key, second key, third key, source, triple.
+     */
+    private static class Index extends TreeMap<Term, SortedMap<Term, SortedMap<Term, Map<String, Literal>>>> {
+
+        private void add(Term k1, Term k2, Term k3, String source, Literal triple) {
+            computeIfAbsent(k1, k -> new TreeMap<>())
+                .computeIfAbsent(k2, k -> new TreeMap<>())
+                .computeIfAbsent(k3, k -> new HashMap<>())
+                .put(source, triple);
+        }
+
+        private void remove(Term k1, Term k2, Term k3, String source) {
+            SortedMap<Term, SortedMap<Term, Map<String, Literal>>> m1 = get(k1);
+            if (m1 == null) return;
+
+            SortedMap<Term, Map<String, Literal>> m2 = m1.get(k2);
+            if (m2 == null) return;
+
+            Map<String, Literal> m3 = m2.get(k3);
+            if (m3 == null) return;
+
+            m3.remove(source);
+
+            if (m3.isEmpty()) m2.remove(k3);
+            if (m2.isEmpty()) m1.remove(k2);
+            if (m1.isEmpty()) remove(k1);
+        }
+
+        /**
+         * Collect all triples whose keys match the given prefix ({@code null} keys must be last).
+         */
+        private void match(Term k1, Term k2, Term k3, String source, Collection<Literal> matches) {
+            Collection<SortedMap<Term, SortedMap<Term, Map<String, Literal>>>> l1 = select(this, k1);
+
+            for (SortedMap<Term, SortedMap<Term, Map<String, Literal>>> m1 : l1) {
+                for (SortedMap<Term, Map<String, Literal>> m2 : select(m1, k2)) {
+                    for (Map<String, Literal> m3 : select(m2, k3)) {
+                        if (source == null) {
+                            for (Map.Entry<String, Literal> kv : m3.entrySet()) matches.add(annotate(kv.getValue(), kv.getKey()));
+                        } else if (m3.containsKey(source)) {
+                            matches.add(annotate(m3.get(source), source));
+                        }
+                    }
+                }
+            }
+        }
+
+        private static <V> Collection<V> select(SortedMap<Term, V> m, Term k) {
+            if (k == null) return m.values();
+
+            V v = m.get(k);
+            return v == null ? Collections.emptySet() : Collections.singleton(v);
+        }
+
+    }
+
+    private final Index spo = new Index();
+
+    private final Index pos = new Index();
+
+    private final Index osp = new Index();
+
+    private final Map<String, Set<Literal>> representations = new HashMap<>();
+
+    @Override
+    public synchronized void update(String source, Collection<Literal> representation) {
+        Set<Literal> previous = representations.getOrDefault(source, Collections.emptySet());
+        Set<Literal> current = new HashSet<>();
+
+        for (Literal t : representation) {
+            if (t.getFunctor().equals(RDFHandler.RDF_FUNCTOR) && t.getArity() == 3) current.add(t);
+        }
+
+        for (Literal t : previous) {
+            if (!current.contains(t)) unindex(t, source);
+        }
+
+        for (Literal t : current) {
+            if (!previous.contains(t)) index(t, source);
+        }
+
+        if (current.isEmpty()) representations.remove(source);
+        else representations.put(source, current);
+    }
+
+    @Override
+    public synchronized void remove(String source) {
+        Set<Literal> previous = representations.remove(source);
+        if (previous != null) for (Literal t : previous) unindex(t, source);
+    }
+
+    @Override
+    public synchronized Collection<Literal> match(Term subject, Term predicate, Term object, String source) {
+        List<Literal> matches = new ArrayList<>();
+
+        if (subject != null && (predicate != null || object == null)) spo.match(subject, predicate, object, source, matches);
+        else if (subject != null) osp.match(object, subject, null, source, matches);
+        else if (predicate != null) pos.match(predicate, object, null, source, matches);
+        else if (object != null) osp.match(object, null, null, source, matches);
+        else if (source != null) matchSource(source, matches);
+        else spo.match(null, null, null, null, matches);
+
+        return matches;
+    }
+
+    private void matchSource(String source, Collection<Literal> matches) {
+        for (Literal t : representations.getOrDefault(source, Collections.emptySet())) matches.add(annotate(t, source));
+    }
+
+    private void index(Literal t, String source) {
+        // terms are accessed one by one, not to expand compact literals (see CompactTriple)
+        Term s = t.getTerm(0), p = t.getTerm(1), o = t.getTerm(2);
+
+        spo.add(s, p, o, source, t);
+        pos.add(p, o, s, source, t);
+        osp.add(o, s, p, source, t);
+    }
+
+    private void unindex(Literal t, String source) {
+        Term s = t.getTerm(0), p = t.getTerm(1), o = t.getTerm(2);
+
+        spo.remove(s, p, o, source);
+        pos.remove(p, o, s, source);
+        osp.remove(o, s, p, source);
+    }
+
+    private static Literal annotate(Literal t, String source) {
+        Literal match = ASSyntax.createLiteral(t.getFunctor(), t.getTerm(0), t.getTerm(1), t.getTerm(2));
+
+        if (t.hasAnnot()) match.setAnnots(t.getAnnots().cloneLT());
+        match.addAnnot(ASSyntax.createStructure(HypermedeaArtifact.SOURCE_FUNCTOR, TermInterner.getShared().createString(source)));
+
+        return match;
+    }
+
+}
@@ -0,0 +1,225 @@
+package org.hypermedea.store;
+
+import jason.NoValueException;
+import jason.asSyntax.*;
+import jason.asSyntax.parser.ParseException;
+import org.hypermedea.tools.TermInterner;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ *   Compact binary codec for Jason literals. Strings (including atom functors) are written once per encoder:
+ *   each later occurrence is written as an index into a table of already written strings, such that URIs repeated
+ *   across triples take a few bytes only. Integers (lengths, indices) are written as variable-length integers.
+ *   Decoded strings and atoms are interned (see {@link TermInterner}).
+ * </p>
+ * <p>
+ *   Strings, atoms, numbers, lists and (annotated) literals are encoded natively. Other terms (e.g. variables)
+ *   are encoded as their string representation, parsed back when decoded.
+ * </p>
+ * <p>
+ *   A codec instance holds a string table: the same instance must decode what it encoded, in the same order.
+ *   Instances are not thread-safe.
+ * </p>
+ */
+public class LiteralCodec {
+
+    private static final byte STRING = 0;
+
+    private static final byte ATOM = 1;
+
+    private static final byte NUMBER = 2;
+
+    private static final byte LITERAL = 3;
+
+    private static final byte NEGATED_LITERAL = 4;
+
+    private static final byte LIST = 5;
+
+    private static final byte OTHER = 6;
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * Encode a literal and its annotations.
+     *
+     * @param t a literal
+     * @param out the output buffer
+     */
+    public void encode(Literal t, ByteArrayOutputStream out) {
+        encodeTerm(t, out);
+    }
+
+    /**
+     * Decode a literal written by {@link #encode(Literal, ByteArrayOutputStream)}.
+     *
+     * @param in the input buffer, positioned on the encoded literal
+     * @return a literal
+     * @throws IllegalArgumentException if the input buffer holds no literal
+     */
+    public Literal decode(ByteBuffer in) {
+        Term t = decodeTerm(in);
+
+        if (t.isLiteral()) return (Literal) t;
+        else throw new IllegalArgumentException("Encoded term isn't a literal: " + t);
+    }
+
+    /**
+     * Encode a string, as an index into the codec's string table.
+     */
+    public void encodeString(String s, ByteArrayOutputStream out) {
+        Integer id = stringIds.get(s);
+
+        if (id != null) {
+            writeVarInt(id, out);
+        } else {
+            id = strings.size();
+
+            stringIds.put(s, id);
+            strings.add(s);
+
+            writeVarInt(id, out);
+
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length, out);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Decode a string written by {@link #encodeString(String, ByteArrayOutputStream)}.
+     */
+    public String decodeString(ByteBuffer in) {
+        int id = readVarInt(in);
+        if (id < strings.size()) return strings.get(id);
+
+        byte[] bytes = new byte[readVarInt(in)];
+        in.get(bytes);
+
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(s);
+
+        return s;
+    }
+
+    public static void writeVarInt(int i, ByteArrayOutputStream out) {
+        while ((i & ~0x7f) != 0) {
+            out.write((i & 0x7f) | 0x80);
+            i >>>= 7;
+        }
+
+        out.write(i);
+    }
+
+    public static int readVarInt(ByteBuffer in) {
+        int i = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            i |= (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) return i;
+        }
+    }
+
+    private void encodeTerm(Term t, ByteArrayOutputStream out) {
+        if (t.isString()) {
+            out.write(STRING);
+            encodeString(((StringTerm) t).getString(), out);
+        } else if (t.isNumeric() && t.isGround()) {
+            long bits;
+
+            try {
+                bits = Double.doubleToLongBits(((NumberTerm) t).solve());
+            } catch (NoValueException e) {
+                throw new IllegalArgumentException("Numeric term cannot be evaluated: " + t, e);
+            }
+
+            out.write(NUMBER);
+            for (int i = 56; i >= 0; i -= 8) out.write((int) (bits >>> i));
+        } else if (t.isList()) {
+            List<Term> l = ((ListTerm) t).getAsList();
+
+            out.write(LIST);
+            writeVarInt(l.size(), out);
+            for (Term e : l) encodeTerm(e, out);
+        } else if (t.isAtom() && !((Literal) t).hasAnnot()) {
+            out.write(ATOM);
+            encodeString(((Atom) t).getFunctor(), out);
+        } else if (t.isLiteral() && !t.isVar()) {
+            Literal l = (Literal) t;
+
+            out.write(l.negated() ? NEGATED_LITERAL : LITERAL);
+            encodeString(l.getFunctor(), out);
+
+            // terms are accessed one by one, not to expand compact literals (see CompactTriple)
+            writeVarInt(l.getArity(), out);
+            for (int i = 0; i < l.getArity(); i++) encodeTerm(l.getTerm(i), out);
+
+            List<Term> annots = l.hasAnnot() ? l.getAnnots().getAsList() : new ArrayList<>();
+            writeVarInt(annots.size(), out);
+            for (Term a : annots) encodeTerm(a, out);
+        } else {
+            out.write(OTHER);
+            encodeString(t.toString(), out);
+        }
+    }
+
+    private Term decodeTerm(ByteBuffer in) {
+        byte tag = in.get();
+
+        switch (tag) {
+            case STRING:
+                return TermInterner.getShared().createString(decodeString(in));
+
+            case ATOM:
+                return TermInterner.getShared().createAtom(decodeString(in));
+
+            case NUMBER:
+                return ASSyntax.createNumber(Double.longBitsToDouble(in.getLong()));
+
+            case LIST:
+                int size = readVarInt(in);
+
+                List<Term> elements = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) elements.add(decodeTerm(in));
+
+                return ASSyntax.createList(elements);
+
+            case LITERAL:
+            case NEGATED_LITERAL:
+                Literal l = ASSyntax.createLiteral(tag == LITERAL, decodeString(in));
+
+                int arity = readVarInt(in);
+                for (int i = 0; i < arity; i++) l.addTerm(decodeTerm(in));
+
+                int annots = readVarInt(in);
+                // annotations (e.g. RDF type maps) are shared by many literals
+                for (int i = 0; i < annots; i++) l.addAnnot(TermInterner.getShared().intern(decodeTerm(in)));
+
+                return l;
+
+            case OTHER:
+                String s = decodeString(in);
+
+                try {
+                    return ASSyntax.parseTerm(s);
+                } catch (ParseException e) {
+                    throw new IllegalArgumentException("Encoded term cannot be parsed: " + s, e);
+                }
+
+            default:
+                throw new IllegalArgumentException("Unknown term tag: " + tag);
+        }
+    }
+
+}
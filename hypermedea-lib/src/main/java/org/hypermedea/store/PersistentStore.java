@@ -0,0 +1,474 @@
+package org.hypermedea.store;
+
+import jason.asSyntax.Literal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ *   On-disk store of resource representations, to restore them when an artifact restarts. Representations are
+ *   appended to a log file, one record per update, encoded with {@link LiteralCodec}. The file is memory-mapped
+ *   for reading only, in windows of fixed size: when the store is opened, only the header of each record is read,
+ *   to index the latest record of each source. Representations are decoded on demand (see {@link #load(String)}).
+ *   Updates are written without mapping the file.
+ * </p>
+ * <p>
+ *   Records of outdated representations are dropped when the store is opened or updated, if they take more space
+ *   than records of current representations (the cost of rewriting the file is thus amortized over updates). A truncated record (e.g. after a crash) is discarded. Records are not
+ *   forced to the storage device after each update: the last updates may be lost if the system crashes.
+ * </p>
+ * <p>
+ *   A file can only be opened by a single store at a time (the store holds a lock on a sibling
+ *   <code>.lock</code> file). Within a JVM, several users (e.g. artifacts) share the same store with
+ *   {@link #open(Path)}: the store is closed once all of them have closed it. Sources are then shared as well:
+ *   users should qualify them (e.g. with their name) to tell their own representations apart.
+ * </p>
+ * <p>
+ *   Hypermedea artifacts use a persistent store if the system property <code>org.hypermedea.persistence.file</code>
+ *   is set to the path of the store's file (see {@link #FILE_PROPERTY}).
+ * </p>
+ */
+public class PersistentStore implements Closeable {
+
+    /**
+     * System property holding the path of the store's file (no persistence if not set).
+     */
+    public static final String FILE_PROPERTY = "org.hypermedea.persistence.file";
+
+    /**
+     * System property indicating whether restored representations should be fetched again from servers
+     * (default: {@code true}).
+     */
+    public static final String REVALIDATE_PROPERTY = "org.hypermedea.persistence.revalidate";
+
+    private static final int MAGIC_NUMBER = 0x48594d31; // HYM1
+
+    private static final int HEADER_SIZE = 4;
+
+    /**
+     * Size of the file (in bytes) below which outdated records are never dropped.
+     */
+    private static final long MIN_COMPACTION_SIZE = 1 << 20;
+
+    /**
+     * Size of the windows in which the file is mapped (larger records are mapped entirely).
+     */
+    private static final int WINDOW_SIZE = 1 << 26;
+
+    private static final byte PUT = 1;
+
+    private static final byte REMOVE = 0;
+
+    private final static Logger LOGGER = Logger.getLogger(PersistentStore.class.getCanonicalName());
+
+    /**
+     * Stores opened with {@link #open(Path)}, by (absolute) path of their file.
+     */
+    private static final Map<Path, PersistentStore> shared = new HashMap<>();
+
+    /**
+     * Position and length of a record in the file (length prefix included).
+     */
+    private static class Record {
+
+        private final long offset;
+
+        private final int length;
+
+        private Record(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+    private final Path file;
+
+    private final FileChannel lockChannel;
+
+    private final FileLock lock;
+
+    private FileChannel channel;
+
+    /**
+     * Number of users of the store, which is closed when it falls to 0.
+     */
+    private int references = 1;
+
+    /**
+     * Read-only mapping of a window of the file, re-mapped when records are read outside of it.
+     */
+    private MappedByteBuffer window;
+
+    /**
+     * Offset in the file of the first byte of {@link #window}.
+     */
+    private long windowOffset;
+
+    private long size;
+
+    /**
+     * Latest record of each source (removed sources excluded).
+     */
+    private final Map<String, Record> records = new LinkedHashMap<>();
+
+    /**
+     * Total size of the records indexed in {@link #records}.
+     */
+    private long liveSize = 0;
+
+    /**
+     * @return a store opened on the file set with {@link #FILE_PROPERTY}, if any
+     * @throws IOException if the file cannot be opened or is no valid store
+     */
+    public static Optional<PersistentStore> fromProperties() throws IOException {
+        String path = System.getProperty(FILE_PROPERTY);
+
+        if (path == null) return Optional.empty();
+        else return Optional.of(open(Paths.get(path)));
+    }
+
+    /**
+     * Return the store opened on the given file in this JVM, if any, or open it. Each call must be followed
+     * by a call to {@link #close()} on the returned store, once no longer used.
+     *
+     * @param file path of the store's file
+     * @return a store shared by all callers with the same file
+     * @throws IOException if the file cannot be opened, is no valid store or is used by another process
+     */
+    public static PersistentStore open(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+
+        synchronized (shared) {
+            PersistentStore s = shared.get(key);
+
+            if (s == null) {
+                s = new PersistentStore(key);
+                shared.put(key, s);
+            } else {
+                synchronized (s) {
+                    s.references++;
+                }
+            }
+
+            return s;
+        }
+    }
+
+    /**
+     * Open a store (or create it if the file doesn't exist), for the exclusive use of the caller.
+     * See {@link #open(Path)} to share a store.
+     *
+     * @param file path of the store's file
+     * @throws IOException if the file cannot be opened, is no valid store or is already used by another store
+     */
+    public PersistentStore(Path file) throws IOException {
+        this.file = file;
+
+        lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        FileLock l;
+
+        try {
+            l = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            l = null;
+        }
+
+        if (l == null) {
+            lockChannel.close();
+            throw new IOException("Store file is already in use: " + file);
+        }
+
+        lock = l;
+
+        try {
+            open();
+            index();
+
+            compactIfNeeded();
+        } catch (IOException e) {
+            if (channel != null) channel.close();
+            unlock();
+
+            throw e;
+        }
+    }
+
+    /**
+     * @return all sources with a stored representation, in order of first storage
+     */
+    public synchronized Set<String> getSources() {
+        return new LinkedHashSet<>(records.keySet());
+    }
+
+    /**
+     * Decode the stored representation of a source.
+     *
+     * @param source URI of a resource
+     * @return the resource's representation (empty if none is stored)
+     * @throws IOException if the representation cannot be read or decoded
+     */
+    public synchronized Collection<Literal> load(String source) throws IOException {
+        Record r = records.get(source);
+        if (r == null) return Collections.emptySet();
+
+        try {
+            ByteBuffer in = read(r);
+
+            LiteralCodec codec = new LiteralCodec();
+            in.get(); // record kind
+            codec.decodeString(in); // source
+
+            int count = LiteralCodec.readVarInt(in);
+            List<Literal> representation = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) representation.add(codec.decode(in));
+
+            return representation;
+        } catch (RuntimeException e) {
+            throw new IOException("Stored representation of " + source + " cannot be decoded", e);
+        }
+    }
+
+    /**
+     * Store the new representation of a source (an empty representation removes the source).
+     *
+     * @param source URI of a resource
+     * @param representation the resource's representation
+     * @throws IOException if the representation cannot be written
+     */
+    public synchronized void put(String source, Collection<Literal> representation) throws IOException {
+        if (representation.isEmpty()) {
+            remove(source);
+            return;
+        }
+
+        LiteralCodec codec = new LiteralCodec();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        out.write(PUT);
+        codec.encodeString(source, out);
+
+        LiteralCodec.writeVarInt(representation.size(), out);
+        for (Literal t : representation) codec.encode(t, out);
+
+        Record r = append(out);
+
+        drop(source);
+        records.put(source, r);
+        liveSize += r.length;
+
+        compactIfNeeded();
+    }
+
+    /**
+     * Remove the stored representation of a source.
+     *
+     * @param source URI of a resource
+     * @throws IOException if the removal cannot be written
+     */
+    public synchronized void remove(String source) throws IOException {
+        if (!records.containsKey(source)) return;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        out.write(REMOVE);
+        new LiteralCodec().encodeString(source, out);
+
+        append(out);
+        drop(source);
+
+        compactIfNeeded();
+    }
+
+    /**
+     * Release the store. The store is closed once all its users (see {@link #open(Path)}) have released it.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (shared) {
+            synchronized (this) {
+                if (references == 0 || --references > 0) return;
+
+                shared.remove(file, this);
+
+                try {
+                    channel.close();
+                } finally {
+                    unlock();
+                }
+            }
+        }
+    }
+
+    private void unlock() throws IOException {
+        try {
+            lock.release();
+        } finally {
+            lockChannel.close();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        size = channel.size();
+
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC_NUMBER);
+            header.flip();
+
+            channel.write(header, 0);
+            size = HEADER_SIZE;
+        } else if (size < HEADER_SIZE || readInt(0) != MAGIC_NUMBER) {
+            channel.close();
+            throw new IOException("File isn't a Hypermedea store: " + file);
+        }
+    }
+
+    /**
+     * Read the header of all records to index the latest record of each source.
+     *
+     * @throws IOException if the file cannot be read or if a record header cannot be decoded
+     */
+    private void index() throws IOException {
+        long offset = HEADER_SIZE;
+
+        while (offset < size) {
+            int length = offset + Integer.BYTES <= size ? readInt(offset) : -1;
+
+            if (length <= 0 || offset + Integer.BYTES + length > size) {
+                LOGGER.warning("Truncated record found in " + file + " (discarded)");
+
+                channel.truncate(offset);
+                size = offset;
+                window = null;
+
+                break;
+            }
+
+            Record r = new Record(offset, Integer.BYTES + length);
+
+            byte kind;
+            String source;
+
+            try {
+                ByteBuffer in = read(r);
+                kind = in.get();
+                source = new LiteralCodec().decodeString(in);
+            } catch (RuntimeException e) {
+                throw new IOException("Record at offset " + offset + " in " + file + " cannot be decoded", e);
+            }
+
+            drop(source);
+
+            if (kind == PUT) {
+                records.put(source, r);
+                liveSize += r.length;
+            }
+
+            offset += r.length;
+        }
+    }
+
+    /**
+     * Rewrite the file if outdated records take more space than current records (and the file is large enough).
+     */
+    private void compactIfNeeded() throws IOException {
+        if (size > MIN_COMPACTION_SIZE && size - HEADER_SIZE > 2 * liveSize) compact();
+    }
+
+    /**
+     * Rewrite the file with the latest record of each source only.
+     */
+    private void compact() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, Record> compacted = new LinkedHashMap<>();
+
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC_NUMBER);
+            header.flip();
+            out.write(header);
+
+            for (Map.Entry<String, Record> kv : records.entrySet()) {
+                Record r = kv.getValue();
+
+                compacted.put(kv.getKey(), new Record(out.position(), r.length));
+                channel.transferTo(r.offset, r.length, out);
+            }
+        }
+
+        channel.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        window = null;
+        records.clear();
+        records.putAll(compacted);
+
+        open();
+    }
+
+    private Record append(ByteArrayOutputStream record) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + record.size());
+        buf.putInt(record.size()).put(record.toByteArray()).flip();
+
+        Record r = new Record(size, buf.remaining());
+
+        while (buf.hasRemaining()) size += channel.write(buf, size);
+
+        return r;
+    }
+
+    private void drop(String source) {
+        Record r = records.remove(source);
+        if (r != null) liveSize -= r.length;
+    }
+
+    /**
+     * @return a buffer positioned on the content of the given record (after its length) and limited to it
+     */
+    private ByteBuffer read(Record r) throws IOException {
+        ByteBuffer in = map(r.offset, r.length).duplicate();
+
+        int start = (int) (r.offset - windowOffset);
+        in.limit(start + r.length).position(start + Integer.BYTES);
+
+        return in;
+    }
+
+    private int readInt(long offset) throws IOException {
+        return map(offset, Integer.BYTES).getInt((int) (offset - windowOffset));
+    }
+
+    /**
+     * @return a window of the file including the given range of bytes
+     */
+    private MappedByteBuffer map(long offset, int length) throws IOException {
+        boolean inWindow = window != null && offset >= windowOffset && offset + length <= windowOffset + window.limit();
+
+        if (!inWindow) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size - offset, Math.max(length, WINDOW_SIZE)));
+            windowOffset = offset;
+        }
+
+        return window;
+    }
+
+}
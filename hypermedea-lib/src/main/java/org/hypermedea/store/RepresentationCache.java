@@ -0,0 +1,357 @@
+package org.hypermedea.store;
+
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import jason.asSyntax.StringTerm;
+import jason.asSyntax.Term;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ *   Bookkeeping of the resource representations held by an artifact, to keep them within a memory budget.
+ *   The budget is expressed as a maximum number of literals and/or a maximum (estimated) number of bytes.
+ *   When the budget is exceeded, sources (resources) are selected for eviction according to an eviction policy:
+ * </p>
+ * <ul>
+ *   <li>{@link Policy#LRU LRU}: least recently updated or accessed source first (default),</li>
+ *   <li>{@link Policy#LFU LFU}: least frequently updated or accessed source first,</li>
+ *   <li>{@link Policy#TTL TTL}: oldest source first. Sources older than the configured time-to-live are also
+ *   evicted, whether the budget is exceeded or not.</li>
+ * </ul>
+ * <p>
+ *   Pinned sources (e.g. watched resources) are never evicted. The cache does not hold representations itself:
+ *   evicting sources is up to the caller (see {@link #evict()}).
+ * </p>
+ * <p>
+ *   Default budget and policy are given by the following system properties:
+ * </p>
+ * <ul>
+ *   <li><code>org.hypermedea.cache.maxLiterals</code>: maximum number of literals (default: unlimited),</li>
+ *   <li><code>org.hypermedea.cache.maxBytes</code>: maximum number of bytes (default: unlimited),</li>
+ *   <li><code>org.hypermedea.cache.policy</code>: one of <code>lru</code>, <code>lfu</code>, <code>ttl</code>
+ *   (an unknown policy falls back to <code>lru</code>),</li>
+ *   <li><code>org.hypermedea.cache.ttl</code>: time-to-live of sources in seconds (TTL policy only).</li>
+ * </ul>
+ */
+public class RepresentationCache {
+
+    public enum Policy { LRU, LFU, TTL }
+
+    public static final String MAX_LITERALS_PROPERTY = "org.hypermedea.cache.maxLiterals";
+
+    public static final String MAX_BYTES_PROPERTY = "org.hypermedea.cache.maxBytes";
+
+    public static final String POLICY_PROPERTY = "org.hypermedea.cache.policy";
+
+    public static final String TTL_PROPERTY = "org.hypermedea.cache.ttl";
+
+    public static final long UNLIMITED = -1;
+
+    /**
+     * Estimated size of a literal, excluding its terms (object headers, term array, hash code cache).
+     */
+    private static final long LITERAL_OVERHEAD = 64;
+
+    /**
+     * Estimated size of a term, excluding the characters of its lexical form.
+     */
+    private static final long TERM_OVERHEAD = 40;
+
+    private static final Logger LOGGER = Logger.getLogger(RepresentationCache.class.getCanonicalName());
+
+    private static class Entry {
+
+        private long literals;
+
+        private long bytes;
+
+        private long hits = 0;
+
+        /**
+         * Time of last update, in milliseconds (see {@link RepresentationCache#clock}).
+         */
+        private long updateTime;
+
+    }
+
+    private final long maxLiterals;
+
+    private final long maxBytes;
+
+    private final Policy policy;
+
+    private final Duration ttl;
+
+    private final Clock clock;
+
+    /**
+     * Entries in order of last update (TTL) or last access (LRU, LFU).
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private final Set<String> pinned = new HashSet<>();
+
+    private long literalCount = 0;
+
+    private long byteCount = 0;
+
+    private long evictionCount = 0;
+
+    /**
+     * @return a cache configured with system properties (see class documentation)
+     */
+    public static RepresentationCache fromProperties() {
+        long maxLiterals = Long.getLong(MAX_LITERALS_PROPERTY, UNLIMITED);
+        long maxBytes = Long.getLong(MAX_BYTES_PROPERTY, UNLIMITED);
+        String policyName = System.getProperty(POLICY_PROPERTY, Policy.LRU.name());
+        Policy policy;
+
+        try {
+            policy = Policy.valueOf(policyName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Unknown cache policy: " + policyName + ", using " + Policy.LRU.name().toLowerCase() + " instead");
+            policy = Policy.LRU;
+        }
+
+        Duration ttl = Duration.ofSeconds(Long.getLong(TTL_PROPERTY, UNLIMITED));
+
+        return new RepresentationCache(maxLiterals, maxBytes, policy, ttl);
+    }
+
+    /**
+     * @param maxLiterals maximum number of literals (or {@link #UNLIMITED})
+     * @param maxBytes maximum estimated number of bytes (or {@link #UNLIMITED})
+     * @param policy eviction policy
+     * @param ttl time-to-live of sources (TTL policy only, ignored if negative)
+     */
+    public RepresentationCache(long maxLiterals, long maxBytes, Policy policy, Duration ttl) {
+        this(maxLiterals, maxBytes, policy, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * @param maxLiterals maximum number of literals (or {@link #UNLIMITED})
+     * @param maxBytes maximum estimated number of bytes (or {@link #UNLIMITED})
+     * @param policy eviction policy
+     * @param ttl time-to-live of sources (TTL policy only, ignored if negative)
+     * @param clock clock giving the update time of sources
+     */
+    public RepresentationCache(long maxLiterals, long maxBytes, Policy policy, Duration ttl, Clock clock) {
+        this.maxLiterals = maxLiterals;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * @return {@code true} if the cache has a budget or a time-to-live (i.e. if it may evict sources)
+     */
+    public boolean isBounded() {
+        return maxLiterals >= 0 || maxBytes >= 0 || (policy.equals(Policy.TTL) && !ttl.isNegative());
+    }
+
+    /**
+     * Record the new representation of a source (an empty representation removes the source).
+     *
+     * @param source URI of a resource
+     * @param representation the resource's representation
+     */
+    public synchronized void update(String source, Collection<Literal> representation) {
+        if (representation.isEmpty()) {
+            remove(source);
+            return;
+        }
+
+        Entry e = entries.remove(source);
+
+        if (e == null) {
+            e = new Entry();
+        } else {
+            literalCount -= e.literals;
+            byteCount -= e.bytes;
+        }
+
+        e.literals = representation.size();
+        e.bytes = 0;
+        for (Literal t : representation) e.bytes += estimateSize(t);
+
+        e.hits++;
+        e.updateTime = clock.millis();
+
+        literalCount += e.literals;
+        byteCount += e.bytes;
+
+        entries.put(source, e);
+    }
+
+    /**
+     * Record an access to the representation of a source (without update).
+     *
+     * @param source URI of a resource
+     */
+    public synchronized void touch(String source) {
+        Entry e = entries.get(source);
+        if (e == null) return;
+
+        e.hits++;
+
+        if (!policy.equals(Policy.TTL)) {
+            entries.remove(source);
+            entries.put(source, e);
+        }
+    }
+
+    /**
+     * Stop keeping track of a source.
+     *
+     * @param source URI of a resource
+     */
+    public synchronized void remove(String source) {
+        Entry e = entries.remove(source);
+
+        if (e != null) {
+            literalCount -= e.literals;
+            byteCount -= e.bytes;
+        }
+    }
+
+    /**
+     * Prevent a source from being evicted.
+     *
+     * @param source URI of a resource
+     */
+    public synchronized void pin(String source) {
+        pinned.add(source);
+    }
+
+    /**
+     * Allow a source to be evicted again.
+     *
+     * @param source URI of a resource
+     */
+    public synchronized void unpin(String source) {
+        pinned.remove(source);
+    }
+
+    /**
+     * Select sources to evict for the cache to be within budget and remove them from the cache.
+     * Sources are returned in order of eviction.
+     *
+     * @return evicted sources (possibly none)
+     */
+    public synchronized List<String> evict() {
+        List<String> evicted = new ArrayList<>();
+
+        if (policy.equals(Policy.TTL) && !ttl.isNegative()) {
+            long now = clock.millis();
+
+            for (Map.Entry<String, Entry> kv : entries.entrySet()) {
+                if (now - kv.getValue().updateTime <= ttl.toMillis()) break; // entries are sorted by update time
+                if (!pinned.contains(kv.getKey())) evicted.add(kv.getKey());
+            }
+
+            for (String source : evicted) remove(source);
+        }
+
+        if (isOverBudget()) {
+            for (String victim : getCandidates()) {
+                remove(victim);
+                evicted.add(victim);
+
+                if (!isOverBudget()) break;
+            }
+        }
+
+        evictionCount += evicted.size();
+
+        return evicted;
+    }
+
+    /**
+     * @param source URI of a resource
+     * @return the number of literals in the source's representation (0 if unknown)
+     */
+    public synchronized long getLiteralCount(String source) {
+        Entry e = entries.get(source);
+        return e == null ? 0 : e.literals;
+    }
+
+    /**
+     * @param source URI of a resource
+     * @return the estimated size in bytes of the source's representation (0 if unknown)
+     */
+    public synchronized long getByteCount(String source) {
+        Entry e = entries.get(source);
+        return e == null ? 0 : e.bytes;
+    }
+
+    /**
+     * @return the total number of literals in all representations
+     */
+    public synchronized long getLiteralCount() {
+        return literalCount;
+    }
+
+    /**
+     * @return the total estimated size in bytes of all representations
+     */
+    public synchronized long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return the number of sources evicted since the cache was created
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Estimate the memory footprint of a literal, based on the length of its terms. Annotations are ignored,
+     * as they are usually shared between literals.
+     *
+     * @param t a literal
+     * @return an estimated size in bytes
+     */
+    public static long estimateSize(Literal t) {
+        long size = LITERAL_OVERHEAD;
+
+        // terms are accessed one by one, not to expand compact literals (see CompactTriple)
+        for (int i = 0; i < t.getArity(); i++) {
+            Term term = t.getTerm(i);
+
+            if (term.isString()) size += TERM_OVERHEAD + 2L * ((StringTerm) term).getString().length();
+            else if (term.isAtom()) size += TERM_OVERHEAD + 2L * ((Atom) term).getFunctor().length();
+            else if (term.isNumeric()) size += TERM_OVERHEAD;
+            else size += TERM_OVERHEAD + 2L * term.toString().length();
+        }
+
+        return size;
+    }
+
+    private boolean isOverBudget() {
+        return (maxLiterals >= 0 && literalCount > maxLiterals) || (maxBytes >= 0 && byteCount > maxBytes);
+    }
+
+    /**
+     * @return all sources that are not pinned, in order of eviction
+     */
+    private List<String> getCandidates() {
+        List<String> candidates = new ArrayList<>();
+
+        // LRU, TTL: iteration order (least recently accessed or oldest first)
+        for (String source : entries.keySet()) {
+            if (!pinned.contains(source)) candidates.add(source);
+        }
+
+        // LFU: least hits first, least recently accessed first among sources with equal hits (the sort is stable)
+        if (policy.equals(Policy.LFU)) candidates.sort(Comparator.comparingLong(source -> entries.get(source).hits));
+
+        return candidates;
+    }
+
+}
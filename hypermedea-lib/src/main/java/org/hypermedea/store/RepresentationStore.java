@@ -0,0 +1,72 @@
+package org.hypermedea.store;
+
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
+
+import java.util.Collection;
+
+/**
+ * <p>
+ *   Store of resource representations managed by a Hypermedea artifact, indexing RDF triples
+ *   (<code>rdf(S, P, O)</code> literals, see {@link org.hypermedea.ct.rdf.RDFHandler}) by subject,
+ *   predicate, object and source (URI of the resource whose representation includes the triple).
+ *   Other literals are ignored.
+ * </p>
+ * <p>
+ *   Implementations must provide a public constructor without argument, to be set as the artifact's store
+ *   with the system property <code>org.hypermedea.store</code> (see {@link #STORE_PROPERTY}). Stores are opt-in:
+ *   by default, artifacts keep no store (and representations can't be queried with <code>match</code> or
+ *   <code>sparql</code>).
+ * </p>
+ */
+public interface RepresentationStore {
+
+    /**
+     * System property holding the fully qualified name of the store class used by Hypermedea artifacts
+     * (e.g. {@link DatasetStore} or {@link IndexedStore}) or {@link #NO_STORE} (the default).
+     */
+    String STORE_PROPERTY = "org.hypermedea.store";
+
+    /**
+     * Value of {@link #STORE_PROPERTY} for artifacts without store.
+     */
+    String NO_STORE = "none";
+
+    /**
+     * Replace the representation of the given source resource.
+     *
+     * @param source URI of the resource
+     * @param representation the new representation of the resource (possibly empty)
+     */
+    void update(String source, Collection<Literal> representation);
+
+    /**
+     * Remove the representation of the given source resource.
+     *
+     * @param source URI of the resource
+     */
+    void remove(String source);
+
+    /**
+     * Find all triples matching the given pattern, where {@code null} matches any term (or any source).
+     *
+     * @param subject subject of matching triples or {@code null}
+     * @param predicate predicate of matching triples or {@code null}
+     * @param object object of matching triples or {@code null}
+     * @param source source of matching triples or {@code null}
+     * @return matching triples, each annotated with its source (<code>rdf(S, P, O)[source(URI)]</code>)
+     */
+    Collection<Literal> match(Term subject, Term predicate, Term object, String source);
+
+    /**
+     * Evaluate a SPARQL query over all representations. Stores are not required to support queries.
+     *
+     * @param query a SPARQL query
+     * @return the result of the query (see {@link DatasetStore#query(String)})
+     * @throws UnsupportedOperationException if the store doesn't support SPARQL queries
+     */
+    default Object query(String query) {
+        throw new UnsupportedOperationException("Store doesn't support SPARQL queries: " + getClass().getName());
+    }
+
+}
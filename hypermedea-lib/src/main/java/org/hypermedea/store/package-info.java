@@ -0,0 +1,5 @@
+/**
+ * Stores holding the resource representations exposed by Hypermedea artifacts, to query them
+ * without going through agents' belief bases.
+ */
+package org.hypermedea.store;
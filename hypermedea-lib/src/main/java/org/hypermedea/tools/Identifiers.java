@@ -5,6 +5,7 @@ import jason.asSyntax.Term;
 
 import java.io.File;
 import java.net.URI;
+import java.net.URISyntaxException;
 
 /**
  * Various methods to handle identifiers (Jason/PDDL identifiers, IRIs).
@@ -49,6 +50,51 @@ public class Identifiers {
         return t.toString();
     }
 
+    /**
+     * Normalize a URI, such that equivalent URIs have the same string form (e.g. to detect already visited
+     * resources): lower-case scheme and host, no default port, no fragment, no dot segments and a non-empty
+     * path for hierarchical URIs. Relative URIs are resolved as file paths.
+     *
+     * @param uri a URI or a file path
+     * @return the normalized URI (or the input string if it isn't a valid URI)
+     */
+    public static String normalizeURI(String uri) {
+        try {
+            URI u = uri.indexOf(':') > 0 ? new URI(uri) : getFileIRI(uri);
+
+            if (u.isOpaque()) return new URI(u.getScheme().toLowerCase(), u.getSchemeSpecificPart(), null).toString();
+
+            String scheme = u.getScheme() == null ? null : u.getScheme().toLowerCase();
+            String host = u.getHost() == null ? null : u.getHost().toLowerCase();
+            String path = u.getRawPath() == null || u.getRawPath().isEmpty() ? "/" : u.getRawPath();
+
+            int port = u.getPort();
+            if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) port = -1;
+
+            StringBuilder builder = new StringBuilder();
+
+            if (scheme != null) builder.append(scheme).append(':');
+
+            if (host != null) {
+                builder.append("//");
+                if (u.getRawUserInfo() != null) builder.append(u.getRawUserInfo()).append('@');
+                builder.append(host);
+                if (port >= 0) builder.append(':').append(port);
+            } else if (u.getRawAuthority() != null) {
+                builder.append("//").append(u.getRawAuthority());
+            } else if ("file".equals(scheme)) {
+                builder.append("//");
+            }
+
+            builder.append(URI.create(path).normalize().getRawPath());
+            if (u.getRawQuery() != null) builder.append('?').append(u.getRawQuery());
+
+            return builder.toString();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return uri;
+        }
+    }
+
     public static URI getFileIRI(String filename) {
         File f = new File(filename);
         return URI.create("file://" + f.getAbsolutePath());
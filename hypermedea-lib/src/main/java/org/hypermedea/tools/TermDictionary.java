@@ -0,0 +1,88 @@
+package org.hypermedea.tools;
+
+import jason.asSyntax.Term;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ *   Dictionary of Jason terms, mapping each distinct term to an integer identifier, to encode structures
+ *   with many repeated terms (e.g. the RDF triples of a representation) compactly. Identifiers are stable
+ *   and decoding requires no lock.
+ * </p>
+ * <p>
+ *   A dictionary is meant to be created for a single representation: structures encoded with it keep a reference
+ *   to it, so that it is reclaimed with the last of them (e.g. when the representation is forgotten or evicted
+ *   from a cache). Once all terms are encoded, {@link #seal()} releases the index used for encoding.
+ * </p>
+ * <p>
+ *   Encoded terms are shared: they must not be modified after encoding.
+ * </p>
+ */
+public class TermDictionary {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Map<Term, Integer> ids = new HashMap<>();
+
+    /**
+     * Terms indexed by identifier (re-assigned after each write, to publish new terms to readers).
+     */
+    private volatile Term[] terms = new Term[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    /**
+     * Return the identifier of the input term, adding the term to the dictionary if unknown.
+     *
+     * @param t a term
+     * @return the term's identifier
+     * @throws IllegalStateException if the dictionary is sealed
+     */
+    public synchronized int encode(Term t) {
+        if (ids == null) throw new IllegalStateException("Dictionary is sealed");
+
+        Integer id = ids.get(t);
+
+        if (id == null) {
+            id = size++;
+
+            Term[] a = id < terms.length ? terms : Arrays.copyOf(terms, terms.length * 2);
+            a[id] = t;
+            terms = a;
+
+            ids.put(t, id);
+        }
+
+        return id;
+    }
+
+    /**
+     * @param id an identifier returned by {@link #encode(Term)}
+     * @return the corresponding term
+     */
+    public Term decode(int id) {
+        return terms[id];
+    }
+
+    /**
+     * Release the index used for encoding and trim the dictionary to its size. Terms can still be decoded
+     * but no new term can be encoded.
+     */
+    public synchronized void seal() {
+        if (ids == null) return;
+
+        ids = null;
+        terms = Arrays.copyOf(terms, size);
+    }
+
+    /**
+     * @return the number of terms in the dictionary
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+}
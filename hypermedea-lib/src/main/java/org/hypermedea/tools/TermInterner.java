@@ -0,0 +1,87 @@
+package org.hypermedea.tools;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Atom;
+import jason.asSyntax.StringTerm;
+import jason.asSyntax.Term;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <p>
+ *   Interner of Jason terms, to share a single instance between all equal terms (e.g. URIs repeated
+ *   across many RDF triples). Interned terms are weakly referenced: they are garbage-collected as soon
+ *   as no representation uses them anymore. The number of interned terms is also bounded by the system
+ *   property <code>org.hypermedea.interner.maxSize</code> (default: 1,000,000). Once the bound is reached,
+ *   new terms are returned as is.
+ * </p>
+ * <p>
+ *   Interned terms are shared: they must not be modified (e.g. annotated) after interning.
+ * </p>
+ */
+public class TermInterner {
+
+    public static final String MAX_SIZE_PROPERTY = "org.hypermedea.interner.maxSize";
+
+    public static final int DEFAULT_MAX_SIZE = 1000000;
+
+    private static final TermInterner shared = new TermInterner(Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+
+    private final Map<Term, WeakReference<Term>> terms = new WeakHashMap<>();
+
+    private final int maxSize;
+
+    /**
+     * @return the interner shared by representation handlers and artifacts
+     */
+    public static TermInterner getShared() {
+        return shared;
+    }
+
+    public TermInterner(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the canonical instance of the input term.
+     *
+     * @param t a term
+     * @return a term equal to {@code t} (possibly {@code t} itself)
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends Term> T intern(T t) {
+        WeakReference<Term> ref = terms.get(t);
+        Term canonical = ref == null ? null : ref.get();
+
+        // equal terms may be of different classes (e.g. atoms and literals without arguments)
+        if (canonical != null && canonical.getClass().equals(t.getClass())) return (T) canonical;
+
+        if (terms.size() < maxSize) terms.put(t, new WeakReference<>(t));
+
+        return t;
+    }
+
+    /**
+     * @return the canonical Jason string for {@code s}
+     */
+    public StringTerm createString(String s) {
+        return intern(ASSyntax.createString(s));
+    }
+
+    /**
+     * @return the canonical Jason atom for {@code functor}
+     */
+    public Atom createAtom(String functor) {
+        return intern(ASSyntax.createAtom(functor));
+    }
+
+    /**
+     * @return the number of terms currently interned
+     */
+    public synchronized int size() {
+        return terms.size();
+    }
+
+}
@@ -4,22 +4,26 @@ import jason.asSyntax.Literal;
 
 import java.util.Collection;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Terms {
 
+    /**
+     * Maximum length of the strings returned by {@link #getOneLineString(Collection)} (before ellipsis).
+     */
+    public static final int MAX_ONE_LINE_LENGTH = 200;
+
     public static String getOneLineString(Collection<Literal> terms) {
         Optional<Literal> tOpt = terms.stream().findAny();
 
         if (tOpt.isEmpty()) return "<none>";
 
-        Literal t = tOpt.get();
+        String str = tOpt.get().toString();
 
-        Pattern p = Pattern.compile("([^\\r\\n]*)\\r?\\n");
-        Matcher m = p.matcher(t.toString());
+        int end = str.indexOf('\n');
+        if (end > 0 && str.charAt(end - 1) == '\r') end--;
 
-        return m.find() ? m.group(1) + "..." : t.toString();
+        if (end < 0 && str.length() <= MAX_ONE_LINE_LENGTH) return str;
+        else return str.substring(0, Math.min(end < 0 ? str.length() : end, MAX_ONE_LINE_LENGTH)) + "...";
     }
 
 }
@@ -0,0 +1,251 @@
+package org.hypermedea;
+
+import jason.asSyntax.Literal;
+import org.hypermedea.op.Operation;
+import org.hypermedea.op.OperationScheduler;
+import org.hypermedea.op.Response;
+import org.hypermedea.op.TestOperation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CrawlerTest {
+
+    private static final String NEXT = "http://example.org/next";
+
+    private static final String OTHER = "http://example.org/other";
+
+    private static final String LABEL = "http://example.org/label";
+
+    /**
+     * Crawl results, collected from the crawler's threads.
+     */
+    private static class Results implements Crawler.Listener {
+
+        private final Map<String, Collection<Literal>> representations = new ConcurrentHashMap<>();
+
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        private final AtomicInteger ends = new AtomicInteger();
+
+        private final CountDownLatch end = new CountDownLatch(1);
+
+        @Override
+        public void onBatch(Map<String, Collection<Literal>> batch) {
+            batchSizes.add(batch.size());
+            representations.putAll(batch);
+        }
+
+        @Override
+        public void onEnd() {
+            ends.incrementAndGet();
+            end.countDown();
+        }
+
+    }
+
+    private Path dir;
+
+    /**
+     * Resources: a -next-> b -next-> c -next-> a, a -other-> d.
+     */
+    @Before
+    public void createResources() throws IOException {
+        dir = Files.createTempDirectory("hypermedea-crawler");
+
+        write("a.ttl", NEXT, uri("b.ttl"));
+        write("a.ttl", OTHER, uri("d.ttl"));
+        write("b.ttl", NEXT, uri("c.ttl"));
+        write("c.ttl", NEXT, uri("a.ttl"));
+        write("d.ttl", NEXT);
+        write("h.ttl", NEXT, "http://host1.invalid/", "http://host2.invalid/");
+    }
+
+    @After
+    public void deleteResources() throws IOException {
+        for (String name : dir.toFile().list()) Files.delete(dir.resolve(name));
+        Files.delete(dir);
+
+        System.clearProperty(Crawler.MAX_HOSTS_PROPERTY);
+        System.clearProperty(Crawler.MAX_RESOURCES_PROPERTY);
+        System.clearProperty(Crawler.BATCH_SIZE_PROPERTY);
+        System.clearProperty(Crawler.MAX_IN_FLIGHT_PER_HOST_PROPERTY);
+    }
+
+    @Test
+    public void testCrawl() throws InterruptedException {
+        Results r = new Results();
+        Crawler c = new Crawler(Collections.emptySet(), Crawler.DEFAULT_MAX_DEPTH, r);
+        crawl(c, r, uri("a.ttl"));
+
+        assertEquals(set(uri("a.ttl"), uri("b.ttl"), uri("c.ttl"), uri("d.ttl")), r.representations.keySet());
+        assertFalse(r.representations.get(uri("d.ttl")).isEmpty());
+
+        // the link back to a is not followed (already visited)
+        assertEquals(4, c.getFetchedCount());
+        assertEquals(0, c.getFailedCount());
+        assertEquals(0, c.getFrontierSize());
+    }
+
+    @Test
+    public void testEnd() throws InterruptedException {
+        Results r = new Results();
+        Crawler c = new Crawler(Collections.emptySet(), Crawler.DEFAULT_MAX_DEPTH, r);
+        crawl(c, r, uri("a.ttl"), uri("missing.ttl"));
+
+        assertTrue(c.hasEnded());
+        assertEquals(1, c.getFailedCount());
+
+        // stopping an ended crawl has no effect
+        c.stop();
+        Thread.sleep(100);
+
+        assertEquals(1, r.ends.get());
+    }
+
+    @Test
+    public void testMaxDepth() throws InterruptedException {
+        assertEquals(set(uri("a.ttl")), crawl(Collections.emptySet(), 0, uri("a.ttl")).representations.keySet());
+        assertEquals(set(uri("a.ttl"), uri("b.ttl"), uri("d.ttl")), crawl(Collections.emptySet(), 1, uri("a.ttl")).representations.keySet());
+    }
+
+    @Test
+    public void testLinkPredicates() throws InterruptedException {
+        Results r = crawl(Collections.singleton(NEXT), Crawler.DEFAULT_MAX_DEPTH, uri("a.ttl"));
+
+        assertEquals(set(uri("a.ttl"), uri("b.ttl"), uri("c.ttl")), r.representations.keySet());
+    }
+
+    @Test
+    public void testMaxResources() throws InterruptedException {
+        System.setProperty(Crawler.MAX_RESOURCES_PROPERTY, "2");
+
+        Results r = crawl(Collections.emptySet(), Crawler.DEFAULT_MAX_DEPTH, uri("a.ttl"));
+
+        assertEquals(2, r.representations.size());
+        assertTrue(r.representations.containsKey(uri("a.ttl")));
+    }
+
+    @Test
+    public void testMaxHosts() throws InterruptedException {
+        System.setProperty(Crawler.MAX_HOSTS_PROPERTY, "1");
+
+        Results r = new Results();
+        Crawler c = new Crawler(Collections.emptySet(), Crawler.DEFAULT_MAX_DEPTH, r);
+        crawl(c, r, uri("h.ttl"));
+
+        // file URIs have no host: h and a single one of the two hosts are crawled (the latter can't be fetched)
+        assertEquals(1, c.getFetchedCount());
+        assertEquals(1, c.getFailedCount());
+    }
+
+    @Test
+    public void testBatchSize() throws InterruptedException {
+        System.setProperty(Crawler.BATCH_SIZE_PROPERTY, "1");
+
+        Results r = crawl(Collections.emptySet(), Crawler.DEFAULT_MAX_DEPTH, uri("a.ttl"));
+
+        assertEquals(Arrays.asList(1, 1, 1, 1), r.batchSizes);
+    }
+
+    @Test
+    public void testOriginalURI() throws InterruptedException {
+        // not normalized (file:/... instead of file:///...)
+        String seed = "file:" + dir.resolve("a.ttl").toAbsolutePath();
+
+        Results r = new Results();
+        Crawler c = new Crawler(Collections.singleton(NEXT), Crawler.DEFAULT_MAX_DEPTH, r);
+        crawl(c, r, seed);
+
+        // the representation is stored under the seed URI, and a isn't fetched again from c's link
+        assertEquals(set(seed, uri("b.ttl"), uri("c.ttl")), r.representations.keySet());
+        assertEquals(3, c.getFetchedCount());
+    }
+
+    @Test
+    public void testMaxInFlightPerHost() throws InterruptedException {
+        assertEquals(Crawler.DEFAULT_MAX_IN_FLIGHT_PER_HOST, crawlHost(10));
+
+        System.setProperty(Crawler.MAX_IN_FLIGHT_PER_HOST_PROPERTY, "1");
+        assertEquals(1, crawlHost(10));
+    }
+
+    /**
+     * Crawl resources of a single host, answered after some delay.
+     *
+     * @return the maximum number of requests in flight at once
+     */
+    private int crawlHost(int resources) throws InterruptedException {
+        OperationScheduler scheduler = TestOperation.createScheduler();
+        AtomicInteger inFlight = new AtomicInteger(), maxInFlight = new AtomicInteger();
+
+        Results r = new Results();
+        Crawler c = new Crawler(Collections.emptySet(), Crawler.DEFAULT_MAX_DEPTH, r, uri -> new TestOperation(uri, Operation.GET, scheduler) {
+            @Override
+            protected void sendSingleRequest() {
+                super.sendSingleRequest();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+                CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> {
+                    inFlight.decrementAndGet();
+                    respond(Response.ResponseStatus.OK);
+                });
+            }
+        });
+
+        String[] seeds = new String[resources];
+        for (int i = 0; i < resources; i++) seeds[i] = TestOperation.createTargetURI();
+
+        crawl(c, r, seeds);
+
+        assertEquals(resources, c.getFetchedCount());
+
+        return maxInFlight.get();
+    }
+
+    private Results crawl(Collection<String> linkPredicates, int maxDepth, String... seeds) throws InterruptedException {
+        Results r = new Results();
+        crawl(new Crawler(linkPredicates, maxDepth, r), r, seeds);
+
+        return r;
+    }
+
+    private void crawl(Crawler c, Results r, String... seeds) throws InterruptedException {
+        c.start(Arrays.asList(seeds));
+
+        assertTrue(r.end.await(10, TimeUnit.SECONDS));
+        assertEquals(1, r.ends.get());
+    }
+
+    private String uri(String name) {
+        return dir.resolve(name).toUri().toString();
+    }
+
+    private void write(String name, String predicate, String... targets) throws IOException {
+        StringBuilder ttl = new StringBuilder();
+
+        ttl.append(String.format("<%s> <%s> \"%s\" .\n", uri(name), LABEL, name));
+        for (String target : targets) ttl.append(String.format("<%s> <%s> <%s> .\n", uri(name), predicate, target));
+
+        Files.write(dir.resolve(name), ttl.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static Set<String> set(String... uris) {
+        return new HashSet<>(Arrays.asList(uris));
+    }
+
+}
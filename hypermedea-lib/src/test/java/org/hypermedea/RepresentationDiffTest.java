@@ -0,0 +1,83 @@
+package org.hypermedea;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RepresentationDiffTest {
+
+    /**
+     * Literals are strings and their shape is their first character (properties are integers).
+     */
+    private static RepresentationDiff<String, Integer> diff(Map<String, Integer> previous, String... next) {
+        return new RepresentationDiff<>(previous, new LinkedHashSet<>(Arrays.asList(next)), t -> t.charAt(0));
+    }
+
+    @Test
+    public void testAdd() {
+        RepresentationDiff<String, Integer> d = diff(Collections.emptyMap(), "a1", "b1");
+
+        assertTrue(d.getKept().isEmpty());
+        assertTrue(d.getRecycled().isEmpty());
+        assertEquals(Arrays.asList("a1", "b1"), d.getAdded());
+        assertTrue(d.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void testKeep() {
+        Map<String, Integer> previous = Map.of("a1", 1, "b1", 2);
+        RepresentationDiff<String, Integer> d = diff(previous, "a1", "b1");
+
+        assertEquals(previous, d.getKept());
+        assertTrue(d.getRecycled().isEmpty());
+        assertTrue(d.getAdded().isEmpty());
+        assertTrue(d.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void testRecycle() {
+        Map<String, Integer> previous = Map.of("a1", 1, "b1", 2);
+        RepresentationDiff<String, Integer> d = diff(previous, "a1", "b2");
+
+        assertEquals(Map.of("a1", 1), d.getKept());
+        assertEquals(Map.of("b2", 2), d.getRecycled());
+        assertTrue(d.getAdded().isEmpty());
+        assertTrue(d.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void testRecycleSameShapeOnly() {
+        Map<String, Integer> previous = Map.of("a1", 1);
+        RepresentationDiff<String, Integer> d = diff(previous, "b1");
+
+        assertTrue(d.getRecycled().isEmpty());
+        assertEquals(Collections.singletonList("b1"), d.getAdded());
+        assertEquals(Collections.singletonList(1), d.getRemoved());
+    }
+
+    @Test
+    public void testRecycleOnce() {
+        Map<String, Integer> previous = Map.of("a1", 1, "b1", 2);
+        RepresentationDiff<String, Integer> d = diff(previous, "a2", "a3");
+
+        // a single property of shape a vanished: the other new literal needs a new property
+        assertEquals(1, d.getRecycled().size());
+        assertEquals(Integer.valueOf(1), d.getRecycled().values().iterator().next());
+        assertEquals(1, d.getAdded().size());
+        assertEquals(Collections.singletonList(2), d.getRemoved());
+    }
+
+    @Test
+    public void testRemove() {
+        Map<String, Integer> previous = Map.of("a1", 1, "a2", 2, "b1", 3);
+        RepresentationDiff<String, Integer> d = diff(previous);
+
+        assertTrue(d.getKept().isEmpty());
+        assertTrue(d.getRecycled().isEmpty());
+        assertTrue(d.getAdded().isEmpty());
+        assertEquals(Set.of(1, 2, 3), new HashSet<>(d.getRemoved()));
+    }
+
+}
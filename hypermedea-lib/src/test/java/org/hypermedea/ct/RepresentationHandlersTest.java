@@ -18,8 +18,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class RepresentationHandlersTest {
 
@@ -79,4 +78,45 @@ public class RepresentationHandlersTest {
         assertTrue(out.size() == 0);
     }
 
+    @Test
+    public void testExactContentTypeFirst() {
+        // also matched by text/.+ (plain text) and application/[^+]+\\+json (JSON) patterns
+        assertTrue(RepresentationHandlers.loadFromContentType("text/turtle").get() instanceof RDFHandler);
+        assertTrue(RepresentationHandlers.loadFromContentType("application/ld+json").get() instanceof RDFHandler);
+
+        assertTrue(RepresentationHandlers.loadFromContentType("text/csv").get() instanceof PlainTextHandler);
+        assertTrue(RepresentationHandlers.loadFromContentType("application/td+json").get() instanceof JsonHandler);
+    }
+
+    @Test
+    public void testMemo() {
+        RepresentationHandlers.reload();
+
+        assertFalse(RepresentationHandlers.loadFromContentType("application/x-unknown").isPresent());
+        assertFalse(RepresentationHandlers.loadFromContentType("application/x-unknown").isPresent());
+
+        // misses are memoized as well
+        assertEquals(1, RepresentationHandlers.getMemoSize());
+
+        for (int i = 0; i < 2 * RepresentationHandlers.MAX_MEMO_SIZE; i++)
+            RepresentationHandlers.loadFromContentType("text/x-test-" + i);
+
+        assertEquals(RepresentationHandlers.MAX_MEMO_SIZE, RepresentationHandlers.getMemoSize());
+    }
+
+    @Test
+    public void testReload() {
+        RepresentationHandler before = RepresentationHandlers.loadFromContentType("text/turtle").get();
+
+        RepresentationHandlers.reload();
+
+        assertEquals(0, RepresentationHandlers.getMemoSize());
+
+        RepresentationHandler after = RepresentationHandlers.loadFromContentType("text/turtle").get();
+
+        // handlers are instantiated again
+        assertTrue(after instanceof RDFHandler);
+        assertNotSame(before, after);
+    }
+
 }
@@ -0,0 +1,115 @@
+package org.hypermedea.ct.rdf;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
+import org.hypermedea.tools.TermDictionary;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CompactTripleTest {
+
+    private static final Term ALICE = ASSyntax.createString("http://example.org/alice");
+
+    private static final Term KNOWS = ASSyntax.createString("http://example.org/knows");
+
+    private static final Term BOB = ASSyntax.createString("http://example.org/bob");
+
+    private static final Term TYPE_MAP = ASSyntax.createStructure(RDFHandler.RDF_TYPE_MAP_FUNCTOR,
+            RDFHandler.RDF_TYPE_URI_ATOM, RDFHandler.RDF_TYPE_URI_ATOM, RDFHandler.RDF_TYPE_URI_ATOM);
+
+    @Test
+    public void testDecode() {
+        CompactTriple t = createTriple();
+
+        assertEquals(RDFHandler.RDF_FUNCTOR, t.getFunctor());
+        assertEquals(3, t.getArity());
+        assertEquals(ALICE, t.getTerm(0));
+        assertEquals(KNOWS, t.getTerm(1));
+        assertEquals(BOB, t.getTerm(2));
+        assertNull(t.getTerm(3));
+        assertTrue(t.hasAnnot(TYPE_MAP));
+    }
+
+    @Test
+    public void testExpandOnGetTerms() {
+        CompactTriple t = createTriple();
+
+        List<Term> terms = t.getTerms();
+
+        assertEquals(List.of(ALICE, KNOWS, BOB), terms);
+        assertEquals(3, t.getArity());
+        assertEquals(BOB, t.getTerm(2));
+    }
+
+    @Test
+    public void testExpandOnSetTerm() {
+        CompactTriple t = createTriple();
+
+        Term carol = ASSyntax.createString("http://example.org/carol");
+        t.setTerm(2, carol);
+
+        assertEquals(ALICE, t.getTerm(0));
+        assertEquals(KNOWS, t.getTerm(1));
+        assertEquals(carol, t.getTerm(2));
+        assertEquals(3, t.getArity());
+    }
+
+    @Test
+    public void testEqualsPlainLiteral() {
+        CompactTriple t = createTriple();
+
+        Literal plain = ASSyntax.createLiteral(RDFHandler.RDF_FUNCTOR, ALICE, KNOWS, BOB);
+        plain.addAnnot(TYPE_MAP);
+
+        assertEquals(plain, t);
+        assertEquals(t, plain);
+        assertEquals(plain.hashCode(), t.hashCode());
+
+        Set<Literal> s = new HashSet<>();
+        s.add(plain);
+
+        assertTrue(s.contains(t));
+
+        // still equal after expansion
+        t.getTerms();
+
+        assertEquals(plain, t);
+        assertEquals(plain.hashCode(), t.hashCode());
+    }
+
+    @Test
+    public void testDeserializeCompact() throws IOException {
+        String previous = System.setProperty(RDFHandler.COMPACT_PROPERTY, "true");
+
+        try {
+            ByteArrayInputStream in = new ByteArrayInputStream(RDFHandlerTest.TEST_RDF_GRAPH.getBytes());
+            Collection<Literal> compact = new RDFHandler().deserialize(in, "http://example.org/", "text/turtle");
+
+            System.clearProperty(RDFHandler.COMPACT_PROPERTY);
+
+            in = new ByteArrayInputStream(RDFHandlerTest.TEST_RDF_GRAPH.getBytes());
+            Collection<Literal> plain = new RDFHandler().deserialize(in, "http://example.org/", "text/turtle");
+
+            assertTrue(compact.stream().allMatch(t -> t instanceof CompactTriple));
+            assertEquals(new HashSet<>(plain), new HashSet<>(compact));
+        } finally {
+            if (previous == null) System.clearProperty(RDFHandler.COMPACT_PROPERTY);
+            else System.setProperty(RDFHandler.COMPACT_PROPERTY, previous);
+        }
+    }
+
+    private static CompactTriple createTriple() {
+        TermDictionary d = new TermDictionary();
+        return new CompactTriple(d, d.encode(ALICE), d.encode(KNOWS), d.encode(BOB), TYPE_MAP);
+    }
+
+}
@@ -7,10 +7,13 @@ import jason.asSyntax.Term;
 import jason.asSyntax.parser.ParseException;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.util.Collection;
@@ -75,4 +78,115 @@ public class RDFHandlerTest {
         assertEquals(1, actual.difference(expected).size());
     }
 
+    @Test
+    public void testMaxTriples() throws UnsupportedEncodingException {
+        System.setProperty(RDFHandler.MAX_TRIPLES_PROPERTY, "2");
+
+        try {
+            ByteArrayInputStream in = new ByteArrayInputStream(TEST_RDF_GRAPH.getBytes("UTF-8"));
+            Collection<Literal> terms = h.deserialize(in, "http://example.org/", "text/turtle");
+
+            assertEquals(2, terms.size());
+        } finally {
+            System.clearProperty(RDFHandler.MAX_TRIPLES_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testStopAtCap() throws UnsupportedEncodingException {
+        int count = 100000;
+        int[] generated = { 0 };
+
+        // about 4 MB of triples, generated as they are read
+        InputStream in = new InputStream() {
+            private byte[] line = new byte[0];
+
+            private int pos = 0;
+
+            @Override
+            public int read() {
+                if (pos == line.length) {
+                    if (generated[0] == count) return -1;
+
+                    int i = generated[0]++;
+                    line = String.format("<http://example.org/s%d> <http://example.org/p> \"%d\" .%n", i, i).getBytes();
+                    pos = 0;
+                }
+
+                return line[pos++];
+            }
+        };
+
+        System.setProperty(RDFHandler.MAX_TRIPLES_PROPERTY, "10");
+
+        try {
+            Collection<Literal> terms = h.deserialize(in, "http://example.org/", "application/n-triples");
+
+            assertEquals(10, terms.size());
+            // parsing stopped soon after the cap (parsers read their input by chunks)
+            assertTrue(generated[0] < count);
+        } finally {
+            System.clearProperty(RDFHandler.MAX_TRIPLES_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testDefaultGraphOnly() throws UnsupportedEncodingException {
+        String dataset = "@prefix ex: <http://example.org/> .\n" +
+                "ex:alice a ex:Person .\n" +
+                "ex:g { ex:bob a ex:Person . }";
+
+        ByteArrayInputStream in = new ByteArrayInputStream(dataset.getBytes("UTF-8"));
+        Collection<Literal> terms = h.deserialize(in, "http://example.org/", "application/trig");
+
+        assertEquals(1, terms.size());
+        assertEquals("http://example.org/alice", RDFHandler.getTriple(terms.iterator().next()).getSubject().getURI());
+    }
+
+    @Test
+    public void testSerializeTurtle() throws ParseException {
+        assertRoundTrip("text/turtle", Lang.TURTLE);
+    }
+
+    @Test
+    public void testSerializeNTriples() throws ParseException {
+        assertRoundTrip("application/n-triples", Lang.NTRIPLES);
+    }
+
+    @Test
+    public void testSerializeJsonLD() throws ParseException {
+        // no streaming serializer: written from a model
+        assertRoundTrip("application/ld+json", Lang.JSONLD);
+    }
+
+    @Test
+    public void testSerializeRDFXML() throws ParseException {
+        // no streaming serializer: written from a model
+        assertRoundTrip("application/rdf+xml", Lang.RDFXML);
+    }
+
+    @Test
+    public void testSerializeUnsupportedContentType() throws ParseException {
+        // falls back to the first supported Content-Type (Turtle)
+        assertRoundTrip("application/x-unknown", Lang.TURTLE);
+    }
+
+    private void assertRoundTrip(String contentType, Lang lang) throws ParseException {
+        ListTerm l = ASSyntax.parseList(TEST_RDF_TERM);
+
+        Collection<Literal> terms = new HashSet<>();
+        for (Term t : l.getAsList()) terms.add((Literal) t);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        h.serialize(terms, out, "http://example.org/", contentType);
+
+        Model m = ModelFactory.createDefaultModel();
+        RDFParser.create().source(new ByteArrayInputStream(out.toByteArray())).base("http://example.org/").lang(lang).parse(m);
+
+        Model expected = ModelFactory.createDefaultModel();
+        expected.read(new StringReader(TEST_RDF_GRAPH), null, "TTL");
+
+        assertTrue(m.getGraph().isIsomorphicWith(expected.getGraph()));
+    }
+
 }
@@ -0,0 +1,88 @@
+package org.hypermedea.op;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class BaseOperationTest {
+
+    private static class DelayedOperation extends TestOperation {
+
+        private final long delay;
+
+        private DelayedOperation(long delay, OperationScheduler scheduler) {
+            super(TestOperation.createTargetURI(), Operation.GET, scheduler);
+            this.delay = delay;
+        }
+
+        @Override
+        protected void sendSingleRequest() {
+            super.sendSingleRequest();
+
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!aborted) respond(Response.ResponseStatus.OK);
+            });
+        }
+
+    }
+
+    private final OperationScheduler scheduler = TestOperation.createScheduler();
+
+    @Test
+    public void testSendAsync() throws Exception {
+        DelayedOperation op1 = new DelayedOperation(100, scheduler);
+        DelayedOperation op2 = new DelayedOperation(100, scheduler);
+
+        CompletableFuture<Response> f1 = op1.sendAsync();
+        CompletableFuture<Response> f2 = op2.sendAsync();
+
+        CompletableFuture.allOf(f1, f2).get(1, TimeUnit.SECONDS);
+
+        assertEquals(Response.ResponseStatus.OK, f1.get().getStatus());
+        assertSame(f2.get(), op2.getResponse());
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        DelayedOperation op = new DelayedOperation(1000, scheduler);
+        op.setTimeout(Duration.ofMillis(100));
+
+        try {
+            op.sendAsync().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        assertTrue(op.isAborted());
+    }
+
+    @Test
+    public void testGetResponseTimeout() throws Exception {
+        DelayedOperation op = new DelayedOperation(1000, scheduler);
+        op.setTimeout(Duration.ofMillis(100));
+        op.sendRequest();
+
+        try {
+            op.getResponse();
+            fail();
+        } catch (NoResponseException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        assertTrue(op.isAborted());
+    }
+
+    @Test
+    public void testCancel() {
+        DelayedOperation op = new DelayedOperation(1000, scheduler);
+
+        op.sendAsync().cancel(true);
+
+        assertTrue(op.isAborted());
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.hypermedea.op;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class OperationSchedulerTest {
+
+    public static final String HOST = "example.org";
+
+    @Test
+    public void testMaxInFlight() throws IOException, InterruptedException {
+        OperationScheduler s = new OperationScheduler(2, OperationScheduler.UNLIMITED_RATE, 1);
+        CountDownLatch sent = new CountDownLatch(1);
+
+        Operation op1 = createOperation(), op2 = createOperation(), op3 = createOperation();
+
+        s.submit(op1, () -> {}, e -> {});
+        s.submit(op2, () -> {}, e -> {});
+        s.submit(op3, sent::countDown, e -> {});
+
+        assertEquals(2, s.getInFlight(HOST));
+        assertEquals(1, s.getQueueLength(HOST));
+
+        s.release(op1, Optional.empty());
+
+        assertTrue(sent.await(1, TimeUnit.SECONDS));
+        assertEquals(0, s.getQueueLength(HOST));
+    }
+
+    @Test
+    public void testRetryAfter() throws IOException, InterruptedException {
+        OperationScheduler s = new OperationScheduler(1, OperationScheduler.UNLIMITED_RATE, 1);
+        CountDownLatch sent = new CountDownLatch(1);
+
+        Operation op1 = createOperation(), op2 = createOperation();
+
+        s.submit(op1, () -> {}, e -> {});
+        s.submit(op2, sent::countDown, e -> {});
+
+        s.release(op1, Optional.of(Duration.ofMillis(500)));
+
+        assertFalse(sent.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(sent.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRate() throws IOException, InterruptedException {
+        OperationScheduler s = new OperationScheduler(10, 5, 1);
+        CountDownLatch sent = new CountDownLatch(3);
+
+        long t = System.nanoTime();
+        for (int i = 0; i < 3; i++) s.submit(createOperation(), sent::countDown, e -> {});
+
+        assertTrue(sent.await(2, TimeUnit.SECONDS));
+
+        // first request sent immediately, then one every 200ms
+        assertTrue(System.nanoTime() - t >= TimeUnit.MILLISECONDS.toNanos(390));
+    }
+
+    @Test
+    public void testHostCleanup() throws IOException {
+        OperationScheduler s = new OperationScheduler(1, OperationScheduler.UNLIMITED_RATE, 1);
+        Operation op = createOperation();
+
+        s.submit(op, () -> {}, e -> {});
+        s.release(op, Optional.empty());
+
+        assertEquals(0, s.getHostCount());
+    }
+
+    @Test
+    public void testHostCleanupAfterPause() throws IOException, InterruptedException {
+        OperationScheduler s = new OperationScheduler(1, OperationScheduler.UNLIMITED_RATE, 1);
+        Operation op = createOperation();
+
+        s.submit(op, () -> {}, e -> {});
+        s.release(op, Optional.of(Duration.ofMillis(200)));
+
+        // state kept while paused
+        assertEquals(1, s.getHostCount());
+
+        Thread.sleep(500);
+        assertEquals(0, s.getHostCount());
+    }
+
+    @Test
+    public void testHostCleanupAfterRefill() throws IOException, InterruptedException {
+        OperationScheduler s = new OperationScheduler(1, 5, 2);
+        Operation op = createOperation();
+
+        s.submit(op, () -> {}, e -> {});
+        s.release(op, Optional.empty());
+
+        // state kept until the token bucket is full again (200ms)
+        assertEquals(1, s.getHostCount());
+
+        Thread.sleep(500);
+        assertEquals(0, s.getHostCount());
+    }
+
+    private Operation createOperation() {
+        // not sent by the operation itself
+        return new TestOperation("http://" + HOST + "/resource", Operation.GET, TestOperation.createScheduler());
+    }
+
+}
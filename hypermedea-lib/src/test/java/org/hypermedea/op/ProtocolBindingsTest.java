@@ -0,0 +1,38 @@
+package org.hypermedea.op;
+
+import org.hypermedea.op.file.FileOperation;
+import org.hypermedea.op.http.HttpOperation;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProtocolBindingsTest {
+
+    @Test
+    public void testBindByScheme() {
+        assertTrue(ProtocolBindings.bind("http://example.org/", TestOperation.createForm(Operation.GET)) instanceof HttpOperation);
+        assertTrue(ProtocolBindings.bind("https://example.org/", TestOperation.createForm(Operation.GET)) instanceof HttpOperation);
+        assertTrue(ProtocolBindings.bind("file:///tmp/test.ttl", TestOperation.createForm(Operation.GET)) instanceof FileOperation);
+    }
+
+    @Test
+    public void testBindRelativePath() {
+        Operation op = ProtocolBindings.bind("test.ttl", TestOperation.createForm(Operation.GET));
+
+        assertTrue(op instanceof FileOperation);
+        assertTrue(op.getTargetURI().startsWith("file:"));
+    }
+
+    @Test(expected = BindingNotFoundException.class)
+    public void testUnknownScheme() {
+        ProtocolBindings.bind("unknown://example.org/", TestOperation.createForm(Operation.GET));
+    }
+
+    @Test
+    public void testReload() {
+        ProtocolBindings.reload();
+
+        assertTrue(ProtocolBindings.bind("http://example.org/", TestOperation.createForm(Operation.GET)) instanceof HttpOperation);
+    }
+
+}
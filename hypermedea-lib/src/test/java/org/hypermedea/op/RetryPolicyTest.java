@@ -0,0 +1,138 @@
+package org.hypermedea.op;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    private static class FlakyOperation extends TestOperation {
+
+        private final AtomicInteger failures;
+
+        private FlakyOperation(String method, int failures, OperationScheduler scheduler) {
+            super(TestOperation.createTargetURI(), method, scheduler);
+            this.failures = new AtomicInteger(failures);
+        }
+
+        @Override
+        protected void sendSingleRequest() {
+            super.sendSingleRequest();
+
+            Response.ResponseStatus status = failures.getAndDecrement() > 0
+                    ? Response.ResponseStatus.SERVER_ERROR
+                    : Response.ResponseStatus.OK;
+
+            new Thread(() -> respond(status)).start();
+        }
+
+    }
+
+    private static class FailingOperation extends TestOperation {
+
+        private final AtomicInteger failures;
+
+        private final IOException cause;
+
+        private FailingOperation(int failures, IOException cause, OperationScheduler scheduler) {
+            super(TestOperation.createTargetURI(), Operation.GET, scheduler);
+
+            this.failures = new AtomicInteger(failures);
+            this.cause = cause;
+        }
+
+        @Override
+        protected void sendSingleRequest() {
+            super.sendSingleRequest();
+
+            if (failures.getAndDecrement() > 0) new Thread(() -> onError(cause)).start();
+            else new Thread(() -> respond(Response.ResponseStatus.OK)).start();
+        }
+
+    }
+
+    private final OperationScheduler scheduler = TestOperation.createScheduler();
+
+    @Test
+    public void testDelay() {
+        RetryPolicy p = new RetryPolicy(4, Duration.ofMillis(100), Duration.ofMillis(300), Duration.ofSeconds(1));
+
+        for (int i = 0; i < 10; i++) {
+            long d1 = p.getDelay(1, Duration.ZERO, Optional.empty()).get().toMillis();
+            long d3 = p.getDelay(3, Duration.ZERO, Optional.empty()).get().toMillis();
+
+            assertTrue(d1 >= 50 && d1 <= 100);
+            assertTrue(d3 >= 150 && d3 <= 300);
+        }
+
+        assertEquals(Duration.ofMillis(500), p.getDelay(1, Duration.ZERO, Optional.of(Duration.ofMillis(500))).get());
+
+        assertFalse(p.getDelay(4, Duration.ZERO, Optional.empty()).isPresent());
+        assertFalse(p.getDelay(1, Duration.ofMillis(950), Optional.empty()).isPresent());
+    }
+
+    @Test
+    public void testRetry() throws IOException {
+        FlakyOperation op = new FlakyOperation(Operation.GET, 1, scheduler);
+        op.sendRequest();
+
+        assertEquals(Response.ResponseStatus.OK, op.getResponse().getStatus());
+        assertEquals(2, op.getAttemptCount());
+    }
+
+    @Test
+    public void testNoRetry() throws IOException {
+        FlakyOperation op = new FlakyOperation(Operation.POST, 1, scheduler);
+        op.sendRequest();
+
+        assertEquals(Response.ResponseStatus.SERVER_ERROR, op.getResponse().getStatus());
+        assertEquals(1, op.getAttemptCount());
+    }
+
+    @Test
+    public void testTransientErrors() {
+        RetryPolicy p = RetryPolicy.fromForm(TestOperation.createForm(Operation.GET));
+
+        assertTrue(p.isTransient(new ConnectException("Connection refused")));
+        assertTrue(p.isTransient(new SocketException("Connection reset")));
+        assertTrue(p.isTransient(new SocketTimeoutException()));
+        assertTrue(p.isTransient(new IOException(new SocketTimeoutException())));
+
+        assertFalse(p.isTransient(new IOException("Response body exceeds maximum size")));
+        assertFalse(p.isTransient(new IllegalStateException()));
+        assertFalse(p.isTransient((Throwable) null));
+    }
+
+    @Test
+    public void testRetryAfterTransientError() throws IOException {
+        FailingOperation op = new FailingOperation(1, new ConnectException("Connection refused"), scheduler);
+        op.sendRequest();
+
+        assertEquals(Response.ResponseStatus.OK, op.getResponse().getStatus());
+        assertEquals(2, op.getAttemptCount());
+    }
+
+    @Test
+    public void testNoRetryAfterDeterministicError() throws IOException {
+        FailingOperation op = new FailingOperation(1, new IOException("Response body exceeds maximum size"), scheduler);
+        op.sendRequest();
+
+        try {
+            op.getResponse();
+            fail();
+        } catch (NoResponseException e) {
+            // expected
+        }
+
+        assertEquals(1, op.getAttemptCount());
+    }
+
+}
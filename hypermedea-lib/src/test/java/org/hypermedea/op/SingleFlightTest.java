@@ -0,0 +1,59 @@
+package org.hypermedea.op;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private final OperationScheduler scheduler = TestOperation.createScheduler();
+
+    @Test
+    public void testCoalescing() throws IOException {
+        String target = TestOperation.createTargetURI();
+
+        TestOperation op1 = new TestOperation(target, Operation.GET, scheduler);
+        TestOperation op2 = new TestOperation(target, Operation.GET, scheduler);
+
+        op1.sendRequest();
+        op2.sendRequest();
+
+        assertEquals(1, op1.getRequestCount());
+        assertEquals(0, op2.getRequestCount());
+
+        op1.respond(Response.ResponseStatus.OK);
+
+        Response r1 = op1.getResponse();
+        Response r2 = op2.getResponse();
+
+        assertSame(r1, r2);
+
+        // flight has landed: a new request is sent
+        TestOperation op3 = new TestOperation(target, Operation.GET, scheduler);
+        op3.sendRequest();
+
+        assertEquals(1, op3.getRequestCount());
+
+        op3.respond(Response.ResponseStatus.OK);
+    }
+
+    @Test
+    public void testUnsafe() throws IOException {
+        String target = TestOperation.createTargetURI();
+
+        TestOperation op1 = new TestOperation(target, Operation.PUT, scheduler);
+        TestOperation op2 = new TestOperation(target, Operation.PUT, scheduler);
+
+        op1.sendRequest();
+        op2.sendRequest();
+
+        assertEquals(1, op1.getRequestCount());
+        assertEquals(1, op2.getRequestCount());
+
+        op1.respond(Response.ResponseStatus.OK);
+        op2.respond(Response.ResponseStatus.OK);
+    }
+
+}
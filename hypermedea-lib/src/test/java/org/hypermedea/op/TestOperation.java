@@ -0,0 +1,67 @@
+package org.hypermedea.op;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Operation that sends no request: it counts requests and is given responses by tests.
+ * Each test operation is sent through the scheduler it is created with, not the default one.
+ */
+public class TestOperation extends BaseOperation {
+
+    private static final AtomicInteger targetCount = new AtomicInteger();
+
+    protected final AtomicInteger requests = new AtomicInteger();
+
+    protected volatile boolean aborted = false;
+
+    public TestOperation(String target, String method, OperationScheduler scheduler) {
+        super(target, createForm(method));
+        setScheduler(scheduler);
+    }
+
+    /**
+     * @return a target URI that no other test operation uses (not to join another operation's flight)
+     */
+    public static String createTargetURI() {
+        return "http://example.org/test/" + targetCount.incrementAndGet();
+    }
+
+    public static Map<String, Object> createForm(String method) {
+        Map<String, Object> f = new HashMap<>();
+        f.put(Operation.METHOD_NAME_FIELD, method);
+
+        return f;
+    }
+
+    /**
+     * @return a scheduler without limits
+     */
+    public static OperationScheduler createScheduler() {
+        return new OperationScheduler(Integer.MAX_VALUE, OperationScheduler.UNLIMITED_RATE, 1);
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public void respond(Response.ResponseStatus status) {
+        onResponse(new TestResponse(this, status));
+    }
+
+    @Override
+    protected void sendSingleRequest() {
+        requests.incrementAndGet();
+    }
+
+    @Override
+    protected void abort() {
+        aborted = true;
+    }
+
+}
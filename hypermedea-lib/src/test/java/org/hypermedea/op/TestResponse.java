@@ -0,0 +1,30 @@
+package org.hypermedea.op;
+
+import jason.asSyntax.Literal;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * Response with the given status and an empty payload.
+ */
+public class TestResponse extends BaseResponse {
+
+    private final ResponseStatus status;
+
+    public TestResponse(Operation op, ResponseStatus status) {
+        super(op);
+        this.status = status;
+    }
+
+    @Override
+    public ResponseStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public Collection<Literal> getPayload() {
+        return new HashSet<>();
+    }
+
+}
@@ -0,0 +1,197 @@
+package org.hypermedea.op.http;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.hypermedea.ct.RepresentationHandlers;
+import org.hypermedea.op.InvalidFormException;
+import org.hypermedea.op.Operation;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ContentCodingsTest {
+
+    private static final String CONTENT = "Hello, Hypermedea! Hello, Hypermedea! Hello, Hypermedea!";
+
+    /**
+     * Brotli stream holding the content "hello" in a single uncompressed meta-block (see RFC 7932).
+     */
+    private static final byte[] BROTLI_HELLO = { 0x40, 0x00, 0x10, 'h', 'e', 'l', 'l', 'o', 0x03 };
+
+    @Test
+    public void testGzip() throws IOException {
+        assertEquals(CONTENT, decode(gzip(bytes(CONTENT)), "gzip"));
+        assertEquals(CONTENT, decode(gzip(bytes(CONTENT)), "x-gzip"));
+    }
+
+    @Test
+    public void testDeflate() throws IOException {
+        assertEquals(CONTENT, decode(deflate(bytes(CONTENT), false), "deflate"));
+    }
+
+    @Test
+    public void testRawDeflate() throws IOException {
+        assertEquals(CONTENT, decode(deflate(bytes(CONTENT), true), "deflate"));
+    }
+
+    @Test
+    public void testSeveralCodings() throws IOException {
+        // codings are listed in the order in which they were applied
+        assertEquals(CONTENT, decode(gzip(deflate(bytes(CONTENT), false)), "deflate, gzip"));
+    }
+
+    @Test
+    public void testIdentity() throws IOException {
+        assertEquals(CONTENT, decode(bytes(CONTENT), null));
+        assertEquals(CONTENT, decode(bytes(CONTENT), "identity"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedCoding() throws IOException {
+        decode(bytes(CONTENT), "compress");
+    }
+
+    @Test
+    public void testBrotli() throws IOException {
+        // br is supported (and advertised) only if a Brotli decoder is on the classpath
+        boolean supported = Arrays.asList(ContentCodings.getAcceptEncoding().split(", ")).contains(ContentCodings.BROTLI);
+
+        try {
+            assertEquals("hello", decode(BROTLI_HELLO, "br"));
+            assertTrue(supported);
+        } catch (IOException e) {
+            assertFalse(supported);
+        }
+    }
+
+    @Test
+    public void testAcceptEncoding() {
+        List<String> codings = Arrays.asList(ContentCodings.getAcceptEncoding().split(", "));
+
+        assertTrue(codings.contains(ContentCodings.GZIP));
+        assertTrue(codings.contains(ContentCodings.DEFLATE));
+
+        assertTrue(ContentCodings.isSupportedForEncoding("GZIP"));
+        assertTrue(ContentCodings.isSupportedForEncoding("deflate"));
+        assertFalse(ContentCodings.isSupportedForEncoding("br"));
+    }
+
+    @Test
+    public void testMaxDecodedSize() throws IOException {
+        // 1 MB of zeros is compressed to about 1 kB
+        byte[] bomb = gzip(new byte[1024 * 1024]);
+        HttpStatistics stats = new HttpStatistics();
+
+        try (InputStream in = ContentCodings.decode(new ByteArrayInputStream(bomb), "gzip", 64 * 1024, stats)) {
+            in.readAllBytes();
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        // decoding stopped soon after the limit was reached
+        assertTrue(stats.getDecodedBytes() > 64 * 1024);
+        assertTrue(stats.getDecodedBytes() < 1024 * 1024);
+    }
+
+    @Test
+    public void testStatistics() throws IOException {
+        HttpStatistics stats = new HttpStatistics();
+
+        try (InputStream in = ContentCodings.decode(new ByteArrayInputStream(gzip(bytes(CONTENT))), "gzip", -1, stats)) {
+            in.readAllBytes();
+        }
+
+        assertEquals(CONTENT.length(), stats.getDecodedBytes());
+
+        stats.recordSent(10, 100);
+        assertEquals(10, stats.getSentBytes());
+        assertEquals(100, stats.getUnencodedSentBytes());
+
+        stats.reset();
+        assertEquals(0, stats.getDecodedBytes());
+        assertEquals(0, stats.getSentBytes());
+    }
+
+    @Test
+    public void testEncode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (OutputStream encoder = ContentCodings.encode(out, "gzip")) {
+            encoder.write(bytes(CONTENT));
+        }
+
+        assertEquals(CONTENT, new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRequestCompression() throws IOException {
+        Map<String, Object> f = new HashMap<>();
+        f.put(Operation.METHOD_NAME_FIELD, Operation.PUT);
+        f.put(HTTP.ContentEncoding, "gzip");
+
+        HttpOperation op = new HttpOperation("http://example.org/resource", f);
+
+        Collection<Literal> payload = Collections.singleton(ASSyntax.createLiteral("json", ASSyntax.createString(CONTENT)));
+        op.setPayload(payload);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        RepresentationHandlers.serialize(payload, expected, "http://example.org/resource");
+
+        assertEquals("gzip", op.getRequest().getFirstHeader(HttpHeaders.CONTENT_ENCODING).getValue());
+        assertArrayEquals(expected.toByteArray(), new GZIPInputStream(new ByteArrayInputStream(op.getRequest().getBodyBytes())).readAllBytes());
+    }
+
+    @Test(expected = InvalidFormException.class)
+    public void testUnsupportedRequestCoding() {
+        Map<String, Object> f = new HashMap<>();
+        f.put(Operation.METHOD_NAME_FIELD, Operation.PUT);
+        f.put(HTTP.ContentEncoding, "br");
+
+        new HttpOperation("http://example.org/resource", f);
+    }
+
+    private static String decode(byte[] body, String contentEncoding) throws IOException {
+        try (InputStream in = ContentCodings.decode(new ByteArrayInputStream(body), contentEncoding, -1, new HttpStatistics())) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] content, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (OutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            deflate.write(content);
+        }
+
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.hypermedea.op.http;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventStreamParserTest {
+
+    @Test
+    public void testEvents() throws IOException {
+        List<String[]> events = new ArrayList<>();
+        EventStreamParser p = new EventStreamParser((id, type, data) -> events.add(new String[] { id, type, data }), -1);
+
+        String stream = ": comment\r\n" +
+                "data: first\r\n" +
+                "data:second\r\n" +
+                "\r\n" +
+                "id: 2\n" +
+                "event: update\n" +
+                "retry: 1000\n" +
+                "data: {\"temp\": 21}\n" +
+                "\n" +
+                "data: incomplete";
+
+        byte[] bytes = stream.getBytes(StandardCharsets.UTF_8);
+
+        // feed bytes one by one, as if received in separate packets
+        for (byte b : bytes) p.feed(ByteBuffer.wrap(new byte[] { b }));
+
+        assertEquals(2, events.size());
+
+        assertArrayEquals(new String[] { "", "message", "first\nsecond" }, events.get(0));
+        assertArrayEquals(new String[] { "2", "update", "{\"temp\": 21}" }, events.get(1));
+
+        assertEquals("2", p.getLastEventId());
+        assertEquals(1000, p.getRetry());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMaxDataSize() throws IOException {
+        EventStreamParser p = new EventStreamParser((id, type, data) -> {}, 4);
+        p.feed(ByteBuffer.wrap("data: too long\n\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMaxLineSize() throws IOException {
+        EventStreamParser p = new EventStreamParser((id, type, data) -> {}, 4);
+
+        // no line break: the line must not be buffered until one arrives
+        byte[] chunk = new byte[1024];
+        Arrays.fill(chunk, (byte) 'x');
+
+        for (int i = 0; i < 1024; i++) p.feed(ByteBuffer.wrap(chunk));
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.hypermedea.op.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.hypermedea.op.Operation;
+import org.hypermedea.op.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HttpBodyStreamTest {
+
+    private static final int LARGE_BODY_SIZE = 8 * 1024 * 1024;
+
+    private HttpServer server;
+
+    private CloseableHttpAsyncClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+        server.createContext("/large", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/x-unknown");
+            exchange.sendResponseHeaders(200, LARGE_BODY_SIZE);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                byte[] chunk = new byte[64 * 1024];
+                for (int i = 0; i < LARGE_BODY_SIZE / chunk.length; i++) out.write(chunk);
+            }
+        });
+
+        server.createContext("/small", exchange -> {
+            byte[] body = "ok".getBytes();
+
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, body.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+
+        server.start();
+
+        // a single connection: the second exchange can only start once the first one has released it
+        client = HttpAsyncClients.custom()
+            .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(1)
+                .setMaxConnPerRoute(1)
+                .build())
+            .build();
+
+        client.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testCloseDrainsBody() throws Exception {
+        HttpBodyStream body = new HttpBodyStream(16);
+
+        int[] capacity = new int[1];
+        body.updateCapacity(increment -> capacity[0] = increment);
+
+        body.fill(ByteBuffer.wrap(new byte[16]));
+        assertEquals(4, body.read(new byte[4], 0, 4));
+
+        body.close();
+        assertEquals(Integer.MAX_VALUE, capacity[0]);
+
+        ByteBuffer rest = ByteBuffer.wrap(new byte[1024]);
+        body.fill(rest);
+
+        assertFalse(rest.hasRemaining());
+        assertEquals(0, body.available());
+        assertEquals(-1, body.read());
+    }
+
+    @Test
+    public void testUnreadBodyReleasesConnection() throws Exception {
+        Response res = get("/large");
+
+        assertEquals(Response.ResponseStatus.OK, res.getStatus());
+
+        try {
+            // no handler for the response's Content-Type: the body is closed before being read
+            res.getPayload();
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        assertEquals(Response.ResponseStatus.OK, get("/small").getStatus());
+    }
+
+    @Test
+    public void testAbortedOperationReleasesConnection() throws Exception {
+        HttpOperation op = new HttpOperation(getURI("/large"), getForm(), client);
+        op.sendAsync().get(5, TimeUnit.SECONDS);
+
+        op.abort();
+
+        assertEquals(Response.ResponseStatus.OK, get("/small").getStatus());
+    }
+
+    private Response get(String path) throws Exception {
+        return new HttpOperation(getURI(path), getForm(), client).sendAsync().get(5, TimeUnit.SECONDS);
+    }
+
+    private String getURI(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    private Map<String, Object> getForm() {
+        Map<String, Object> f = new HashMap<>();
+        f.put(Operation.METHOD_NAME_FIELD, Operation.GET);
+
+        return f;
+    }
+
+}
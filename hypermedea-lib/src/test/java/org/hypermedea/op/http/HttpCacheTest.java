@@ -0,0 +1,105 @@
+package org.hypermedea.op.http;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HttpCacheTest {
+
+    public static final String TEST_URI = "http://example.org/resource";
+
+    @Test
+    public void testParseCacheControl() {
+        Map<String, String> cc = HttpCache.parseCacheControl("max-age=60, no-cache, private=\"Set-Cookie\"");
+
+        assertEquals("60", cc.get("max-age"));
+        assertEquals("", cc.get("no-cache"));
+        assertEquals("Set-Cookie", cc.get("private"));
+    }
+
+    @Test
+    public void testFreshness() {
+        HttpCache c = new HttpCache();
+        SimpleHttpRequest req = SimpleHttpRequest.create("GET", TEST_URI);
+        Instant now = Instant.now();
+
+        SimpleHttpResponse res = createResponse("max-age=60");
+        assertTrue(c.isStorable(req, res));
+
+        c.store(new HttpCacheEntry(TEST_URI, req, res, res.getBodyBytes(), now, now));
+
+        HttpCacheEntry e = c.lookup(TEST_URI, req);
+
+        assertNotNull(e);
+        assertTrue(e.isFresh(now));
+        assertFalse(e.isFresh(now.plusSeconds(120)));
+    }
+
+    @Test
+    public void testRevalidation() {
+        SimpleHttpRequest req = SimpleHttpRequest.create("GET", TEST_URI);
+        Instant now = Instant.now();
+
+        SimpleHttpResponse res = createResponse("no-cache");
+        res.addHeader(HttpHeaders.ETAG, "\"v1\"");
+
+        HttpCacheEntry e = new HttpCacheEntry(TEST_URI, req, res, res.getBodyBytes(), now, now);
+
+        assertFalse(e.isFresh(now));
+        assertTrue(e.hasValidators());
+
+        e.addConditionalHeaders(req);
+
+        assertEquals("\"v1\"", req.getFirstHeader(HttpHeaders.IF_NONE_MATCH).getValue());
+    }
+
+    @Test
+    public void testNoStore() {
+        HttpCache c = new HttpCache();
+        SimpleHttpRequest req = SimpleHttpRequest.create("GET", TEST_URI);
+
+        assertFalse(c.isStorable(req, createResponse("no-store, max-age=60")));
+    }
+
+    @Test
+    public void testDiskTier() throws Exception {
+        File dir = Files.createTempDirectory("hypermedea-cache").toFile();
+        SimpleHttpRequest req = SimpleHttpRequest.create("GET", TEST_URI);
+        Instant now = Instant.now();
+
+        // memory tier too small to hold the response
+        HttpCache c = new HttpCache(1, HttpCache.DEFAULT_MAX_ENTRY_SIZE, dir);
+        SimpleHttpResponse res = createResponse("max-age=60");
+        c.store(new HttpCacheEntry(TEST_URI, req, res, res.getBodyBytes(), now, now));
+
+        assertEquals(0, c.getSize());
+
+        HttpCacheEntry e = c.lookup(TEST_URI, req);
+
+        assertNotNull(e);
+        assertEquals("abc", e.toResponse().getBodyText());
+
+        c.clear();
+        dir.delete();
+    }
+
+    private SimpleHttpResponse createResponse(String cacheControl) {
+        SimpleHttpResponse res = SimpleHttpResponse.create(200, "abc", ContentType.TEXT_PLAIN);
+
+        res.addHeader(HttpHeaders.DATE, DateUtils.formatStandardDate(Instant.now()));
+        res.addHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+        return res;
+    }
+
+}
@@ -1,14 +1,25 @@
 package org.hypermedea.op.http;
 
 import jason.asSyntax.*;
+import jason.asSyntax.parser.ParseException;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.hypermedea.ct.rdf.RDFHandlerTest;
 import org.hypermedea.op.Operation;
 import org.hypermedea.op.Response;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Optional;
 
+import static org.junit.Assert.assertEquals;
+
 public class HttpOperationTest {
 
     public static final String SOURCE_RDF_URI = "https://territoire.emse.fr/kg/emse/fayol/4ET";
@@ -100,4 +111,26 @@ public class HttpOperationTest {
         assert res.getStatus().equals(Response.ResponseStatus.OK);
     }
 
+    @Test
+    public void testPayloadContentType() throws ParseException {
+        HashMap<String, Object> f = new HashMap<>();
+        f.put(Operation.METHOD_NAME_FIELD, Operation.PUT);
+        f.put(HTTP.ContentType, "application/n-triples");
+
+        HttpOperation op = new HttpOperation(TARGET_JSON_URI, f);
+
+        Collection<Literal> payload = new HashSet<>();
+        for (Term t : ASSyntax.parseList(RDFHandlerTest.TEST_RDF_TERM).getAsList()) payload.add((Literal) t);
+
+        op.setPayload(payload);
+
+        // the Content-Type given in the form selects the serialization
+        assertEquals("application/n-triples", op.getRequest().getContentType().getMimeType());
+
+        Model m = ModelFactory.createDefaultModel();
+        RDFParser.create().source(new ByteArrayInputStream(op.getRequest().getBodyBytes())).lang(Lang.NTRIPLES).parse(m);
+
+        assertEquals(4, m.size());
+    }
+
 }
@@ -0,0 +1,81 @@
+package org.hypermedea.store;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.ListTerm;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
+import jason.asSyntax.parser.ParseException;
+import org.hypermedea.ct.rdf.RDFHandlerTest;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DatasetStoreTest {
+
+    private static final String ALICE = "http://example.org/alice";
+
+    @Test
+    public void testSelect() throws ParseException {
+        DatasetStore store = new DatasetStore();
+        store.update(ALICE, getTestRepresentation());
+
+        Object r = store.query("SELECT ?name WHERE { <http://example.org/alice> <http://example.org/name> ?name }");
+
+        assertTrue(r instanceof List);
+        assertEquals(1, ((List<?>) r).size());
+        assertEquals(ASSyntax.createString("Alice"), ((List<?>) ((List<?>) r).get(0)).get(0));
+    }
+
+    @Test
+    public void testAsk() throws ParseException {
+        DatasetStore store = new DatasetStore();
+        store.update(ALICE, getTestRepresentation());
+
+        String q = "ASK { GRAPH <http://example.org/alice> { ?s a <http://example.org/Person> } }";
+
+        assertEquals(true, store.query(q));
+
+        store.remove(ALICE);
+
+        assertEquals(false, store.query(q));
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws ParseException {
+        DatasetStore store = new DatasetStore();
+        store.update(ALICE, getTestRepresentation());
+
+        Collection<Literal> updated = getTestRepresentation();
+        updated.removeIf(t -> t.getTerm(1).equals(ASSyntax.createString("http://example.org/name")));
+        updated.add(ASSyntax.parseLiteral("rdf(\"http://example.org/alice\", \"http://example.org/name\", \"Alicia\") [ rdf_type_map(uri, uri, literal) ]"));
+
+        store.update(ALICE, updated);
+
+        Object r = store.query("SELECT ?name WHERE { <http://example.org/alice> <http://example.org/name> ?name }");
+
+        assertEquals(1, ((List<?>) r).size());
+        assertEquals(ASSyntax.createString("Alicia"), ((List<?>) ((List<?>) r).get(0)).get(0));
+
+        // unchanged triples are kept
+        assertEquals(true, store.query("ASK { <http://example.org/alice> a <http://example.org/Person> }"));
+        assertEquals(4, store.match(null, null, null, ALICE).size());
+
+        store.update(ALICE, new HashSet<>());
+
+        assertEquals(0, store.match(null, null, null, null).size());
+    }
+
+    private Collection<Literal> getTestRepresentation() throws ParseException {
+        ListTerm l = ASSyntax.parseList(RDFHandlerTest.TEST_RDF_TERM);
+
+        Collection<Literal> terms = new HashSet<>();
+        for (Term t : l.getAsList()) terms.add((Literal) t);
+
+        return terms;
+    }
+
+}
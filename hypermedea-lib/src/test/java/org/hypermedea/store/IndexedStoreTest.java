@@ -0,0 +1,64 @@
+package org.hypermedea.store;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.ListTerm;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
+import jason.asSyntax.parser.ParseException;
+import org.hypermedea.ct.rdf.RDFHandlerTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class IndexedStoreTest {
+
+    private static final String ALICE = "http://example.org/alice";
+
+    @Test
+    public void testMatch() throws ParseException {
+        IndexedStore store = new IndexedStore();
+        store.update(ALICE, getTestRepresentation());
+
+        Term alice = ASSyntax.createString(ALICE);
+        Term name = ASSyntax.createString("http://example.org/name");
+
+        assertEquals(4, store.match(alice, null, null, null).size());
+        assertEquals(1, store.match(null, name, null, null).size());
+        assertEquals(1, store.match(alice, null, ASSyntax.createNumber(42), ALICE).size());
+        assertEquals(1, store.match(null, null, ASSyntax.createString("Alice"), null).size());
+        assertEquals(0, store.match(null, null, null, "http://example.org/bob").size());
+    }
+
+    @Test
+    public void testUpdate() throws ParseException {
+        IndexedStore store = new IndexedStore();
+        store.update(ALICE, getTestRepresentation());
+
+        List<Literal> l = new ArrayList<>(getTestRepresentation());
+        l.removeIf(t -> t.getTerm(2).isNumeric());
+
+        store.update(ALICE, l);
+
+        assertEquals(3, store.match(null, null, null, ALICE).size());
+        assertEquals(0, store.match(null, null, ASSyntax.createNumber(42), null).size());
+
+        store.remove(ALICE);
+
+        assertEquals(0, store.match(null, null, null, null).size());
+    }
+
+    private Collection<Literal> getTestRepresentation() throws ParseException {
+        ListTerm l = ASSyntax.parseList(RDFHandlerTest.TEST_RDF_TERM);
+
+        Collection<Literal> terms = new HashSet<>();
+        for (Term t : l.getAsList()) terms.add((Literal) t);
+
+        return terms;
+    }
+
+}
@@ -0,0 +1,206 @@
+package org.hypermedea.store;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.ListTerm;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
+import jason.asSyntax.parser.ParseException;
+import org.hypermedea.ct.rdf.RDFHandlerTest;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class PersistentStoreTest {
+
+    private static final String ALICE = "http://example.org/alice";
+
+    private static final String BOB = "http://example.org/bob";
+
+    @Test
+    public void testRestore() throws IOException, ParseException {
+        Path f = Files.createTempFile("hypermedea", ".store");
+
+        try (PersistentStore s = new PersistentStore(f)) {
+            s.put(ALICE, getTestRepresentation());
+            s.put(BOB, getTestRepresentation());
+            s.remove(BOB);
+        }
+
+        try (PersistentStore s = new PersistentStore(f)) {
+            assertEquals(1, s.getSources().size());
+            assertEquals(getTestRepresentation(), new HashSet<>(s.load(ALICE)));
+            assertTrue(s.load(BOB).isEmpty());
+        }
+
+        delete(f);
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException, ParseException {
+        Path f = Files.createTempFile("hypermedea", ".store");
+
+        try (PersistentStore s = new PersistentStore(f)) {
+            s.put(ALICE, getTestRepresentation());
+            s.put(BOB, getTestRepresentation());
+        }
+
+        try (FileChannel c = FileChannel.open(f, StandardOpenOption.WRITE)) {
+            c.truncate(c.size() - 1);
+        }
+
+        try (PersistentStore s = new PersistentStore(f)) {
+            assertEquals(1, s.getSources().size());
+            assertEquals(getTestRepresentation(), new HashSet<>(s.load(ALICE)));
+        }
+
+        delete(f);
+    }
+
+    @Test
+    public void testCorruptedRecord() throws IOException {
+        Path f = Files.createTempFile("hypermedea", ".store");
+
+        // header, then a record whose source string is longer than the record itself
+        ByteBuffer content = ByteBuffer.allocate(11).putInt(0x48594d31).putInt(3).put(new byte[] { 1, 0, 0x7f });
+        content.flip();
+
+        try (FileChannel c = FileChannel.open(f, StandardOpenOption.WRITE)) {
+            c.write(content);
+        }
+
+        try {
+            new PersistentStore(f).close();
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        delete(f);
+    }
+
+    @Test
+    public void testSharedStore() throws IOException, ParseException {
+        Path f = Files.createTempFile("hypermedea", ".store");
+
+        PersistentStore s1 = PersistentStore.open(f);
+        PersistentStore s2 = PersistentStore.open(f);
+
+        assertSame(s1, s2);
+
+        s1.put(ALICE, getTestRepresentation());
+        s1.close();
+
+        // still open for its other user
+        s2.put(BOB, getTestRepresentation());
+        assertEquals(2, s2.getSources().size());
+
+        s2.close();
+
+        try (PersistentStore s = PersistentStore.open(f)) {
+            assertNotSame(s1, s);
+            assertEquals(2, s.getSources().size());
+        }
+
+        delete(f);
+    }
+
+    @Test
+    public void testExclusiveStore() throws IOException {
+        Path f = Files.createTempFile("hypermedea", ".store");
+
+        try (PersistentStore s = PersistentStore.open(f)) {
+            new PersistentStore(f).close();
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        // lock released on close
+        new PersistentStore(f).close();
+
+        delete(f);
+    }
+
+    @Test
+    public void testUpdates() throws IOException, ParseException {
+        Path f = Files.createTempFile("hypermedea", ".store");
+
+        try (PersistentStore s = new PersistentStore(f)) {
+            for (int i = 0; i < 1000; i++) {
+                s.put(ALICE, getTestRepresentation());
+                s.put(BOB, getTestRepresentation());
+            }
+
+            s.remove(ALICE);
+
+            assertTrue(s.load(ALICE).isEmpty());
+            assertEquals(getTestRepresentation(), new HashSet<>(s.load(BOB)));
+        }
+
+        try (PersistentStore s = new PersistentStore(f)) {
+            assertEquals(1, s.getSources().size());
+            assertEquals(getTestRepresentation(), new HashSet<>(s.load(BOB)));
+        }
+
+        delete(f);
+    }
+
+    @Test
+    public void testCompaction() throws IOException, ParseException {
+        Path f = Files.createTempFile("hypermedea", ".store");
+        Collection<Literal> representation = getTestRepresentation();
+
+        long maxSize = 0;
+        boolean compacted = false;
+
+        try (PersistentStore s = new PersistentStore(f)) {
+            s.put(BOB, representation);
+
+            // outdated records of a single source, until the file is compacted
+            for (int i = 0; i < 100000 && !compacted; i++) {
+                s.put(ALICE, representation);
+
+                long size = Files.size(f);
+                compacted = size < maxSize;
+                maxSize = Math.max(maxSize, size);
+            }
+
+            assertEquals(representation, new HashSet<>(s.load(ALICE)));
+            assertEquals(representation, new HashSet<>(s.load(BOB)));
+        }
+
+        assertTrue(compacted);
+        assertTrue(maxSize > 1 << 20);
+
+        try (PersistentStore s = new PersistentStore(f)) {
+            assertEquals(2, s.getSources().size());
+            assertEquals(representation, new HashSet<>(s.load(ALICE)));
+        }
+
+        delete(f);
+    }
+
+    private void delete(Path f) throws IOException {
+        Files.delete(f);
+        Files.deleteIfExists(f.resolveSibling(f.getFileName() + ".lock"));
+    }
+
+    private Collection<Literal> getTestRepresentation() throws ParseException {
+        ListTerm l = ASSyntax.parseList(RDFHandlerTest.TEST_RDF_TERM);
+
+        Collection<Literal> terms = new HashSet<>();
+        for (Term t : l.getAsList()) terms.add((Literal) t);
+
+        return terms;
+    }
+
+}
@@ -0,0 +1,146 @@
+package org.hypermedea.store;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RepresentationCacheTest {
+
+    /**
+     * Clock moved forward by tests.
+     */
+    private static class ManualClock extends Clock {
+
+        private Instant now = Instant.EPOCH;
+
+        private void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+    }
+
+    @Test
+    public void testLRU() {
+        RepresentationCache c = new RepresentationCache(4, RepresentationCache.UNLIMITED, RepresentationCache.Policy.LRU, Duration.ZERO);
+
+        c.update("a", getRepresentation(2));
+        c.update("b", getRepresentation(2));
+        c.touch("a");
+        c.update("c", getRepresentation(2));
+
+        assertEquals(Collections.singletonList("b"), c.evict());
+        assertEquals(4, c.getLiteralCount());
+        assertEquals(1, c.getEvictionCount());
+    }
+
+    @Test
+    public void testLFU() {
+        RepresentationCache c = new RepresentationCache(4, RepresentationCache.UNLIMITED, RepresentationCache.Policy.LFU, Duration.ZERO);
+
+        c.update("a", getRepresentation(2));
+        c.touch("a");
+        c.update("b", getRepresentation(2));
+        c.touch("b");
+        c.touch("b");
+        c.update("c", getRepresentation(2));
+
+        assertEquals(Collections.singletonList("c"), c.evict());
+    }
+
+    @Test
+    public void testSeveralVictims() {
+        RepresentationCache c = new RepresentationCache(4, RepresentationCache.UNLIMITED, RepresentationCache.Policy.LFU, Duration.ZERO);
+
+        c.update("a", getRepresentation(2));
+        c.touch("a");
+        c.update("b", getRepresentation(2));
+        c.update("c", getRepresentation(2));
+        c.update("d", getRepresentation(2));
+        c.touch("d");
+        c.touch("d");
+
+        // b and c have the same hits: b was accessed first
+        assertEquals(Arrays.asList("b", "c"), c.evict());
+        assertEquals(4, c.getLiteralCount());
+        assertEquals(2, c.getEvictionCount());
+    }
+
+    @Test
+    public void testPin() {
+        RepresentationCache c = new RepresentationCache(1, RepresentationCache.UNLIMITED, RepresentationCache.Policy.LRU, Duration.ZERO);
+
+        c.update("a", getRepresentation(2));
+        c.pin("a");
+        c.update("b", getRepresentation(2));
+
+        assertEquals(Collections.singletonList("b"), c.evict());
+        assertTrue(c.evict().isEmpty());
+        assertEquals(2, c.getLiteralCount("a"));
+    }
+
+    @Test
+    public void testTTL() {
+        ManualClock clock = new ManualClock();
+        RepresentationCache c = new RepresentationCache(RepresentationCache.UNLIMITED, RepresentationCache.UNLIMITED, RepresentationCache.Policy.TTL, Duration.ofMillis(50), clock);
+
+        c.update("a", getRepresentation(1));
+        clock.advance(Duration.ofMillis(100));
+        c.update("b", getRepresentation(1));
+
+        assertEquals(Collections.singletonList("a"), c.evict());
+
+        clock.advance(Duration.ofMillis(50));
+
+        assertTrue(c.evict().isEmpty());
+
+        clock.advance(Duration.ofMillis(1));
+
+        assertEquals(Collections.singletonList("b"), c.evict());
+    }
+
+    @Test
+    public void testUnknownPolicy() {
+        String previous = System.setProperty(RepresentationCache.POLICY_PROPERTY, "lfru");
+
+        try {
+            // falls back to LRU (with a warning)
+            assertTrue(!RepresentationCache.fromProperties().isBounded());
+        } finally {
+            if (previous == null) System.clearProperty(RepresentationCache.POLICY_PROPERTY);
+            else System.setProperty(RepresentationCache.POLICY_PROPERTY, previous);
+        }
+    }
+
+    private Collection<Literal> getRepresentation(int size) {
+        List<Literal> l = new ArrayList<>();
+        for (int i = 0; i < size; i++) l.add(ASSyntax.createLiteral("p", ASSyntax.createNumber(i)));
+
+        return l;
+    }
+
+}
@@ -0,0 +1,18 @@
+package org.hypermedea.tools;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class IdentifiersTest {
+
+    @Test
+    public void testNormalizeURI() {
+        assertEquals("http://example.org/b", Identifiers.normalizeURI("HTTP://Example.org:80/a/../b#frag"));
+        assertEquals("https://example.org/", Identifiers.normalizeURI("https://example.org"));
+        assertEquals("https://example.org:8443/x?q=1", Identifiers.normalizeURI("https://example.org:8443/x?q=1#f"));
+        assertEquals("file:///tmp/x.ttl", Identifiers.normalizeURI("file:/tmp/x.ttl"));
+        assertEquals("urn:isbn:123", Identifiers.normalizeURI("urn:isbn:123#x"));
+    }
+
+}
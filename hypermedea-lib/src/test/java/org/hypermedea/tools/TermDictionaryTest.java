@@ -0,0 +1,56 @@
+package org.hypermedea.tools;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Term;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TermDictionaryTest {
+
+    @Test
+    public void testEncodeDecode() {
+        TermDictionary d = new TermDictionary();
+
+        Term alice = ASSyntax.createString("http://example.org/alice");
+        Term bob = ASSyntax.createString("http://example.org/bob");
+
+        int a = d.encode(alice);
+        int b = d.encode(bob);
+
+        assertNotEquals(a, b);
+        assertEquals(a, d.encode(ASSyntax.createString("http://example.org/alice")));
+        assertEquals(2, d.size());
+
+        assertSame(alice, d.decode(a));
+        assertSame(bob, d.decode(b));
+    }
+
+    @Test
+    public void testGrow() {
+        TermDictionary d = new TermDictionary();
+
+        for (int i = 0; i < 1000; i++) assertEquals(i, d.encode(ASSyntax.createNumber(i)));
+
+        assertEquals(1000, d.size());
+        assertEquals(ASSyntax.createNumber(999), d.decode(999));
+    }
+
+    @Test
+    public void testSeal() {
+        TermDictionary d = new TermDictionary();
+
+        int a = d.encode(ASSyntax.createAtom("a"));
+        d.seal();
+
+        assertEquals(ASSyntax.createAtom("a"), d.decode(a));
+
+        try {
+            d.encode(ASSyntax.createAtom("b"));
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package org.hypermedea.tools;
+
+import jason.asSyntax.Atom;
+import jason.asSyntax.StringTerm;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TermInternerTest {
+
+    @Test
+    public void testIntern() {
+        TermInterner i = new TermInterner(10);
+
+        StringTerm s1 = i.createString("http://example.org/alice");
+        StringTerm s2 = i.createString("http://example.org/alice");
+
+        assertSame(s1, s2);
+        assertNotSame(s1, i.createString("http://example.org/bob"));
+    }
+
+    @Test
+    public void testMaxSize() {
+        TermInterner i = new TermInterner(1);
+
+        Atom a = i.createAtom("a");
+
+        assertNotSame(i.createAtom("b"), i.createAtom("b"));
+        assertSame(a, i.createAtom("a"));
+    }
+
+}